@@ -0,0 +1,533 @@
+/**
+ * File: BitBoard.java
+ * Represents a 4x4 board for the game 2048 packed into a single long.
+ * Each tile takes 4 bits holding the exponent of its value (0 for an empty
+ * tile, 1 for 2, 2 for 4, ...), so the whole grid costs 8 bytes. Moves are
+ * looked up in precomputed row tables instead of being computed tile by
+ * tile; vertical moves transpose the board and reuse the row tables.
+ *
+ * Since a tile is 4 bits, the largest tile is 32768 (2^15). Two 32768
+ * tiles do not merge on a BitBoard, so it only plays exactly like Board
+ * while every tile is below 32768; callers check fits before packing a
+ * Board and play on the Board itself when it doesn't.
+ *
+ **/
+
+import java.util.*;
+import java.io.*;
+
+/*
+ * Name: BitBoard
+ * Purpose: To represent a 4x4 board for a 2048 game as a bitboard
+ */
+public class BitBoard {
+   public final int NUM_START_TILES = 2;
+   public final int TWO_PROBABILITY = 90;
+   public final int GRID_SIZE = 4;
+
+   // largest exponent a 4 bit tile can hold
+   private static final int MAX_EXPONENT = 15;
+
+   // results of moving each possible 16 bit row left or right
+   private static final short[] ROW_LEFT = new short[65536];
+   private static final short[] ROW_RIGHT = new short[65536];
+
+   // score gained by moving each possible 16 bit row left or right
+   private static final int[] SCORE_LEFT = new int[65536];
+   private static final int[] SCORE_RIGHT = new int[65536];
+
+   static {
+      for (int row = 0; row < 65536; row++) {
+         int[] line = new int[4];
+         for (int i = 0; i < 4; i++) {
+            line[i] = (row >>> (4 * i)) & 0xF;
+         }
+         int gained = slideLeft(line);
+         int moved = 0;
+         for (int i = 0; i < 4; i++) {
+            moved |= line[i] << (4 * i);
+         }
+         ROW_LEFT[row] = (short) moved;
+         SCORE_LEFT[row] = gained;
+
+         // moving right is moving the mirrored row left
+         int mirrored = reverseRow(row);
+         ROW_RIGHT[mirrored] = (short) reverseRow(moved);
+         SCORE_RIGHT[mirrored] = gained;
+      }
+   }
+
+   private final Random random;
+   private long board;
+   private int score;
+
+   private long undoBoard;
+   private int undoScore;
+   private boolean undoAvailable;
+
+   /*
+    * Name: BitBoard
+    * Purpose: constructor;
+    *    constructs board w/ random tiles
+    * Parameters: random (Random) - object of Random class
+    * Return: constructor has no return type
+    */
+   public BitBoard(Random random) {
+      this.random = random;
+
+      //set first 2 random tiles
+      for (int i = 0; i < this.NUM_START_TILES; i++) {
+         this.addRandomTile();
+      }
+   }
+
+   /*
+    * Name: BitBoard
+    * Purpose: constructor;
+    *    loads a 4x4 board saved by Board or BitBoard
+    * Parameters: inputBoard(String) - to be passed to file constructor;
+    *    random (Random) - object of Random class
+    * Return: constructor has no return type
+    */
+   public BitBoard(String inputBoard, Random random) throws IOException {
+      this.random = random;
+      BoardFile file = BoardFile.read(inputBoard);
+      if (file.size != this.GRID_SIZE) {
+         throw new IOException("BitBoard only supports " + this.GRID_SIZE +
+               "x" + this.GRID_SIZE + " boards, file has size " + file.size);
+      }
+      this.score = file.score;
+
+      for (int row = 0; row < this.GRID_SIZE; row++) {
+         for (int col = 0; col < this.GRID_SIZE; col++) {
+            int exponent = file.cells[row * this.GRID_SIZE + col];
+            this.setTile(row, col, exponent == 0 ? 0 : 1 << exponent);
+         }
+      }
+   }
+
+   /*
+    * Name: saveBoard
+    * Purpose: to save the current board to a file in the same format
+    *    as Board.saveBoard
+    * Parameters: outputBoard (String) - to specify file to save board to
+    * Return: void
+    */
+   public void saveBoard(String outputBoard) throws IOException {
+      byte[] cells = new byte[this.GRID_SIZE * this.GRID_SIZE];
+      for (int i = 0; i < cells.length; i++) {
+         cells[i] = (byte) ((this.board >>> (4 * i)) & 0xF);
+      }
+      new BoardFile(this.GRID_SIZE, this.score, cells).write(outputBoard);
+   }
+
+   /*
+    * Name: addRandomTile
+    * Purpose: to add a random tile (2 or 4) to an open space on the board;
+    *    draws from random exactly like Board.addRandomTile
+    * Parameters: none
+    * Return: void
+    */
+   public void addRandomTile() {
+      int count = 0;
+      for (int i = 0; i < 16; i++) {
+         if (((this.board >>> (4 * i)) & 0xF) == 0) {
+            count++;
+         }
+      }
+
+      //if no empty tiles, return without changing board
+      if (count == 0) {
+         return;
+      }
+      int location = this.random.nextInt(count);
+      int value = this.random.nextInt(100);
+      long exponent = (value < TWO_PROBABILITY) ? 1 : 2;
+
+      // tiles are stored in row-major order, so the location'th empty
+      // nibble is the location'th empty tile of Board
+      for (int i = 0; i < 16; i++) {
+         if (((this.board >>> (4 * i)) & 0xF) == 0) {
+            if (location == 0) {
+               this.board |= exponent << (4 * i);
+               return;
+            }
+            location--;
+         }
+      }
+   }
+
+   /*
+    * Name: rotate
+    * Purpose: to rotate the board 90 degrees clockwise or counterclockwise
+    *    depending on the truth value of rotateClockwise
+    * Parameters: rotateClockwise (boolean) - determines rotation direction
+    * Return: void
+    */
+   public void rotate(boolean rotateClockwise) {
+      long t = transpose(this.board);
+      if (rotateClockwise) {
+         // clockwise is a transpose followed by mirroring every row
+         this.board = mirrorRows(t);
+      }
+      else {
+         // counterclockwise is a transpose followed by flipping the rows
+         this.board = flipRows(t);
+      }
+   }
+
+   /*
+    * Name: move
+    * Purpose: Performs a move operation in the specified direction
+    * Parameters: direction (Direction) - indicates which direction to move
+    * Return: boolean (true if move occurs successfully, false otherwise)
+    */
+   public boolean move(Direction direction) {
+      long moved = this.shift(direction);
+      if (moved == this.board) {
+         return false;
+      }
+      this.undoBoard = this.board;
+      this.undoScore = this.score;
+      this.undoAvailable = true;
+
+      this.score += this.shiftScore(direction);
+      this.board = moved;
+      return true;
+   }
+
+   /*
+    * Name: isGameOver
+    * Purpose: check to see if game is over
+    * Parameters: none
+    * Return: boolean (true if cannot move in any direction)
+    */
+   public boolean isGameOver() {
+      //game is over if cannot move in any direction
+      return !canMove(Direction.LEFT) && !canMove(Direction.RIGHT) &&
+         !canMove(Direction.UP) && !canMove(Direction.DOWN);
+   }
+
+   /*
+    * Name: canMove
+    * Purpose: determine if we can move in a given direction
+    * Parameters: direction (Direction) - which direction to move
+    * Return: boolean (true if can move in specified direction)
+    */
+   public boolean canMove(Direction direction) {
+      return this.shift(direction) != this.board;
+   }
+
+   /*
+    * Name: canUndo
+    * Purpose: helper method to check if undo can be called
+    * Parameters: none
+    * Return: boolean (true if undo can be called, false otherwise)
+    */
+   public boolean canUndo() {
+      return this.undoAvailable;
+   }
+
+   /*
+    * Name: undo
+    * Purpose: undo last move
+    * Parameters: none
+    * Return: void
+    */
+   public void undo() {
+      if (!canUndo()) {
+         return;
+      }
+      this.board = this.undoBoard;
+      this.score = this.undoScore;
+      this.undoAvailable = false;
+   }
+
+   // Return a copy of the 2048 Grid; unlike Board this is not a live view
+   public int[][] getGrid() {
+      int[][] grid = new int[GRID_SIZE][GRID_SIZE];
+      for (int row = 0; row < GRID_SIZE; row++) {
+         for (int col = 0; col < GRID_SIZE; col++) {
+            grid[row][col] = getTile(row, col);
+         }
+      }
+      return grid;
+   }
+
+   // Return the score
+   public int getScore() {
+      return score;
+   }
+
+   // Return the packed board, 4 bits per tile in row-major order
+   public long getBits() {
+      return board;
+   }
+
+   @Override
+      public String toString() {
+         StringBuilder outputString = new StringBuilder();
+         outputString.append(String.format("Score: %d\n", score));
+         for (int row = 0; row < GRID_SIZE; row++) {
+            for (int column = 0; column < GRID_SIZE; column++) {
+               int value = getTile(row, column);
+               outputString.append(value == 0 ? "    -" :
+                     String.format("%5d", value));
+            }
+
+            outputString.append("\n");
+         }
+         return outputString.toString();
+      }
+
+   /*
+    * Name: getTile
+    * Purpose: private method to read the value of a tile
+    * Parameters: row (int), col (int) - position of the tile
+    * Return: int (value of the tile, 0 if empty)
+    */
+   private int getTile(int row, int col) {
+      int exponent = (int) (this.board >>> (4 * (row * 4 + col))) & 0xF;
+      return exponent == 0 ? 0 : 1 << exponent;
+   }
+
+   /*
+    * Name: setTile
+    * Purpose: private method to store a tile value as its exponent
+    * Parameters: row (int), col (int) - position of the tile;
+    *    value (int) - 0 or a power of 2 no larger than 32768
+    * Return: void
+    */
+   private void setTile(int row, int col, int value) throws IOException {
+      int exponent = 0;
+      if (value != 0) {
+         exponent = Integer.numberOfTrailingZeros(value);
+         if (Integer.bitCount(value) != 1 || exponent < 1 ||
+               exponent > MAX_EXPONENT) {
+            throw new IOException("BitBoard cannot hold tile " + value);
+         }
+      }
+      int shift = 4 * (row * 4 + col);
+      this.board = (this.board & ~(0xFL << shift)) |
+         ((long) exponent << shift);
+   }
+
+   /*
+    * Name: shift
+    * Purpose: private method to compute the board after a move
+    * Parameters: direction (Direction) - which direction to move
+    * Return: long (the packed board after the move)
+    */
+   private long shift(Direction direction) {
+      return slide(this.board, direction);
+   }
+
+   /*
+    * Name: slide
+    * Purpose: compute a packed board after a move, without adding a tile;
+    *    used by search code that works on packed boards directly
+    * Parameters: bits (long) - packed board, 4 bits per tile;
+    *    direction (Direction) - which direction to move
+    * Return: long (the packed board after the move; bits if nothing moved)
+    */
+   public static long slide(long bits, Direction direction) {
+      switch (direction) {
+         case LEFT:
+            return shiftRows(bits, ROW_LEFT);
+         case RIGHT:
+            return shiftRows(bits, ROW_RIGHT);
+         case UP:
+            return transpose(shiftRows(transpose(bits), ROW_LEFT));
+         case DOWN:
+            return transpose(shiftRows(transpose(bits), ROW_RIGHT));
+         default:
+            return bits;
+      }
+   }
+
+   /*
+    * Name: fits
+    * Purpose: check that a board can be packed and will move exactly as
+    *    Board moves it: it is 4x4 and no tile is 32768 or more
+    * Parameters: board (Board) - board to check
+    * Return: boolean (true if pack(board) plays the same as board)
+    */
+   public static boolean fits(Board board) {
+      if (board.GRID_SIZE != 4) {
+         return false;
+      }
+      for (int row = 0; row < 4; row++) {
+         for (int col = 0; col < 4; col++) {
+            if (board.getTile(row, col) >= 1 << MAX_EXPONENT) {
+               return false;
+            }
+         }
+      }
+      return true;
+   }
+
+   // Return a 4x4 board packed into a long; check fits first
+   public static long pack(Board board) {
+      long bits = 0;
+      for (int cell = 0; cell < 16; cell++) {
+         int value = board.getTile(cell / 4, cell % 4);
+         long exponent = value == 0 ? 0 :
+            Integer.numberOfTrailingZeros(value);
+         bits |= exponent << (4 * cell);
+      }
+      return bits;
+   }
+
+   /*
+    * Name: pack
+    * Purpose: pack a 4x4 snapshot into a long; tiles above 32768 don't fit
+    * Parameters: board (BoardSnapshot) - 4x4 board
+    * Return: long (packed board, 4 bits of exponent per tile)
+    */
+   public static long pack(BoardSnapshot board) {
+      if (board.getSize() != 4) {
+         throw new IllegalArgumentException("only 4x4 grids can be packed");
+      }
+      long bits = 0;
+      for (int cell = 0; cell < 16; cell++) {
+         int exponent = board.cells[cell];
+         if (exponent > MAX_EXPONENT) {
+            throw new IllegalArgumentException("tile " + (1L << exponent) +
+                  " doesn't fit in 4 bits");
+         }
+         bits |= (long) exponent << (4 * cell);
+      }
+      return bits;
+   }
+
+   /*
+    * Name: pack
+    * Purpose: pack a 4x4 grid of tile values into a long
+    * Parameters: grid (int[][]) - tile values, 0 for empty tiles
+    * Return: long (packed board, 4 bits of exponent per tile)
+    */
+   public static long pack(int[][] grid) {
+      if (grid.length != 4) {
+         throw new IllegalArgumentException("only 4x4 grids can be packed");
+      }
+      long bits = 0;
+      for (int row = 0; row < 4; row++) {
+         for (int col = 0; col < 4; col++) {
+            int value = grid[row][col];
+            int exponent = value == 0 ? 0 : 
+               Integer.numberOfTrailingZeros(value);
+            if (exponent > MAX_EXPONENT) {
+               throw new IllegalArgumentException("tile " + value + 
+                     " doesn't fit in 4 bits");
+            }
+            bits |= (long) exponent << (4 * (row * 4 + col));
+         }
+      }
+      return bits;
+   }
+
+   /*
+    * Name: shiftScore
+    * Purpose: private method to compute the score gained by a move
+    * Parameters: direction (Direction) - which direction to move
+    * Return: int (score gained)
+    */
+   private int shiftScore(Direction direction) {
+      switch (direction) {
+         case LEFT:
+            return rowScores(this.board, SCORE_LEFT);
+         case RIGHT:
+            return rowScores(this.board, SCORE_RIGHT);
+         case UP:
+            return rowScores(transpose(this.board), SCORE_LEFT);
+         case DOWN:
+            return rowScores(transpose(this.board), SCORE_RIGHT);
+         default:
+            return 0;
+      }
+   }
+
+   // Look up every row of the board in a row table
+   private static long shiftRows(long bits, short[] table) {
+      long result = 0;
+      for (int row = 0; row < 4; row++) {
+         int shift = 16 * row;
+         long line = table[(int) (bits >>> shift) & 0xFFFF] & 0xFFFFL;
+         result |= line << shift;
+      }
+      return result;
+   }
+
+   // Sum the score table entry of every row of the board
+   private static int rowScores(long bits, int[] table) {
+      return table[(int) bits & 0xFFFF] +
+         table[(int) (bits >>> 16) & 0xFFFF] +
+         table[(int) (bits >>> 32) & 0xFFFF] +
+         table[(int) (bits >>> 48) & 0xFFFF];
+   }
+
+   // Swap rows and columns; nibble (r, c) ends up at (c, r)
+   static long transpose(long x) {
+      long a1 = x & 0xF0F00F0FF0F00F0FL;
+      long a2 = x & 0x0000F0F00000F0F0L;
+      long a3 = x & 0x0F0F00000F0F0000L;
+      long a = a1 | (a2 << 12) | (a3 >>> 12);
+      long b1 = a & 0xFF00FF0000FF00FFL;
+      long b2 = a & 0x00FF00FF00000000L;
+      long b3 = a & 0x00000000FF00FF00L;
+      return b1 | (b2 >>> 24) | (b3 << 24);
+   }
+
+   // Reverse the order of the tiles inside every row
+   private static long mirrorRows(long x) {
+      long swapped = ((x & 0x0F0F0F0F0F0F0F0FL) << 4) |
+         ((x >>> 4) & 0x0F0F0F0F0F0F0F0FL);
+      return ((swapped & 0x00FF00FF00FF00FFL) << 8) |
+         ((swapped >>> 8) & 0x00FF00FF00FF00FFL);
+   }
+
+   // Reverse the order of the rows
+   private static long flipRows(long x) {
+      return ((x & 0xFFFFL) << 48) | ((x & 0xFFFF0000L) << 16) |
+         ((x >>> 16) & 0xFFFF0000L) | (x >>> 48);
+   }
+
+   // Reverse the order of the 4 tiles in a 16 bit row
+   private static int reverseRow(int row) {
+      return ((row & 0xF) << 12) | ((row & 0xF0) << 4) |
+         ((row >>> 4) & 0xF0) | ((row >>> 12) & 0xF);
+   }
+
+   /*
+    * Name: slideLeft
+    * Purpose: private method used to build the row tables;
+    *    slides and merges a row of exponents towards index 0
+    * Parameters: line (int[]) - exponents of the row, updated in place
+    * Return: int (score gained by the merges)
+    */
+   private static int slideLeft(int[] line) {
+      int gained = 0;
+      int target = 0;
+      // exponent waiting at target that may still merge, 0 if none
+      int pending = 0;
+      for (int i = 0; i < line.length; i++) {
+         int exponent = line[i];
+         if (exponent == 0) {
+            continue;
+         }
+         if (exponent == pending && exponent < MAX_EXPONENT) {
+            line[target - 1] = exponent + 1;
+            gained += 1 << (exponent + 1);
+            pending = 0;
+         }
+         else {
+            line[target++] = exponent;
+            pending = exponent;
+         }
+      }
+      while (target < line.length) {
+         line[target++] = 0;
+      }
+      return gained;
+   }
+}
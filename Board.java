@@ -11,7 +11,10 @@
  **/
 
 import java.util.*;
+import java.util.concurrent.*;
+import java.util.stream.*;
 import java.io.*;
+import java.lang.invoke.*;
 
 /*
  * Name: Board
@@ -23,17 +26,69 @@ public class Board {
    public final int GRID_SIZE;
 
    private final Random random;
-   private int[][] grid;
+   // tiles in row-major order (row * GRID_SIZE + col), each stored as the
+   // exponent of its value: 0 for an empty tile, 1 for 2, 2 for 4, ...
+   private byte[] cells;
    private int score;
 
-   // next 2 instance variables are part of extra credit method implementation
-   private int[][] undoGrid;
-   private int undoScore;
+   // moves that can be undone and redone (extended from the extra credit
+   // single undo); each move records the tiles it changed
+   public static final int DEFAULT_UNDO_DEPTH = 64;
+   // most bytes the history's changed tiles take, however big the board
+   private static final int MAX_UNDO_BYTES = 1 << 24;
+   private UndoHistory history;
+
+   // cells that moves are slid into; swapped with cells after a move so
+   // the moved board doesn't have to be copied back
+   private byte[] spareCells;
+
+   // cells last handed to a BoardSnapshot, which this board must never
+   // write to again; copied on the next change made in place, and never
+   // reused as spareCells
+   private byte[] sharedCells;
+
+   // empty tiles of cells and spareCells, swapped along with them
+   private FreeCellIndex freeCells;
+   private FreeCellIndex spareFreeCells;
+
+   // returned by tryMove and reused so moving doesn't allocate
+   private final MoveResult moveResult = new MoveResult();
+
+   // the hash change, move mask and undo changes of each move, gathered
+   // as it slides; reused like moveResult
+   private final SlideState slide = new SlideState();
+
+   // where the latest move records the tiles it slid, merged and added,
+   // or null to record nothing (see setMoveEvents)
+   private MoveEvents moveEvents;
+
+   // returned by slideLine when the line doesn't change
+   static final int NO_CHANGE = -1;
+
+   // boards at least this wide slide their lines in parallel
+   public static final int PARALLEL_THRESHOLD = 512;
+   // roughly how many tiles one parallel task slides before splitting
+   private static final int PARALLEL_TASK_TILES = 1 << 15;
+
+   // boards at least this wide compute their move mask with SIMD
+   public static final int VECTOR_THRESHOLD = 64;
+   // VectorMoveScan.scan, or null if jdk.incubator.vector isn't available
+   private static final MethodHandle VECTOR_SCAN = findVectorScan();
+
+   // bit i is set when the board can move in Direction.values()[i];
+   // kept up to date by every method that changes the grid
+   private int moveMask;
+
+   // Zobrist hash of the tiles: the XOR of zobristKey(cell, exponent)
+   // over every tile, also kept up to date by every change to the grid;
+   // a move's change to it is worked out as it slides (see SlideState)
+   private long hash;
+
    /*
     * Name: Board
     * Purpose: constructor; 
     *    constructs board w/ random tiles when no input file selected;
-    *    initializes grid and score instance variables
+    *    initializes cells and score instance variables
     * Parameters: boardSize (int) - dimension of board;
     *    random (Random) - object of Random class   
     * Return: constructor has no return type 
@@ -41,7 +96,10 @@ public class Board {
    public Board(int boardSize, Random random) {
       this.random = random; 
       this.GRID_SIZE = boardSize; 
-      this.grid = new int[boardSize][boardSize];
+      this.cells = new byte[boardSize * boardSize];
+      this.freeCells = new FreeCellIndex(boardSize * boardSize);
+      this.resetFreeCells();
+      this.setUndoDepth(DEFAULT_UNDO_DEPTH);
 
       //set first 2 random tiles
       for (int i = 0; i < this.NUM_START_TILES; i++) {
@@ -49,6 +107,104 @@ public class Board {
       }
    }
 
+   /*
+    * Name: Board
+    * Purpose: copy constructor; copies the tiles, score and move state of
+    *    another board but not its undo state, and draws random tiles
+    *    from its own Random so copies can be played on other threads
+    * Parameters: other (Board) - board to copy;
+    *    random (Random) - object of Random class for this copy
+    * Return: constructor has no return type
+    */
+   public Board(Board other, Random random) {
+      this(other, random, DEFAULT_UNDO_DEPTH);
+   }
+
+   /*
+    * Name: Board
+    * Purpose: copy constructor with a history of its own depth, for
+    *    copies that are played on but never undone, such as rollouts
+    * Parameters: other (Board) - board to copy;
+    *    random (Random) - object of Random class for this copy;
+    *    undoDepth (int) - moves the copy can undo (see setUndoDepth)
+    * Return: constructor has no return type
+    */
+   public Board(Board other, Random random, int undoDepth) {
+      this.random = random;
+      this.GRID_SIZE = other.GRID_SIZE;
+      this.cells = other.cells.clone();
+      this.freeCells = new FreeCellIndex(GRID_SIZE * GRID_SIZE);
+      this.freeCells.copyFrom(other.freeCells);
+      this.score = other.score;
+      this.moveMask = other.moveMask;
+      this.hash = other.hash;
+      this.setUndoDepth(undoDepth);
+   }
+
+   /*
+    * Name: copyFrom
+    * Purpose: make this board a copy of another board of the same size,
+    *    reusing this board's arrays; the undo state is dropped
+    * Parameters: other (Board) - board to copy
+    * Return: void
+    */
+   public void copyFrom(Board other) {
+      if (other.GRID_SIZE != this.GRID_SIZE) {
+         throw new IllegalArgumentException("can't copy a " + 
+               other.GRID_SIZE + "x" + other.GRID_SIZE + " board into a " +
+               GRID_SIZE + "x" + GRID_SIZE + " board");
+      }
+      this.ensureWritable();
+      System.arraycopy(other.cells, 0, this.cells, 0, this.cells.length);
+      this.freeCells.copyFrom(other.freeCells);
+      this.score = other.score;
+      this.moveMask = other.moveMask;
+      this.hash = other.hash;
+      this.history.clear();
+      this.clearMoveEvents();
+   }
+
+   /*
+    * Name: setUndoDepth
+    * Purpose: set how many moves can be undone, clearing the history;
+    *    the history takes UndoHistory.CHANGE_BYTES per changed tile, up to
+    *    depth moves' worth of tiles but never more than MAX_UNDO_BYTES, so
+    *    on a very large board a move that changes more tiles than that
+    *    can't be undone
+    * Parameters: depth (int) - moves to keep, 0 to turn undo off (moves
+    *    are then a little cheaper)
+    * Return: void
+    */
+   public void setUndoDepth(int depth) {
+      // a move changes each tile at most once, plus the tile added after
+      long cells = (long) this.GRID_SIZE * this.GRID_SIZE + 1;
+      long capacity = Math.min(depth * cells,
+            MAX_UNDO_BYTES / UndoHistory.CHANGE_BYTES);
+      this.history = new UndoHistory(depth, (int) Math.max(capacity, 1));
+   }
+
+   /*
+    * Name: newGame
+    * Purpose: clear the board and score and set new start tiles, so one
+    *    Board can be reused for many games without allocating
+    * Parameters: none
+    * Return: void
+    */
+   public void newGame() {
+      this.ensureWritable();
+      Arrays.fill(this.cells, (byte) 0);
+      this.score = 0;
+      this.moveMask = 0;
+      this.hash = 0;
+      this.resetFreeCells();
+      this.history.clear();
+      this.clearMoveEvents();
+
+      for (int i = 0; i < this.NUM_START_TILES; i++) {
+         this.addRandomTile();
+      }
+   }
+
    /*
     * Name: Board 
     * Purpose: constructor
@@ -59,74 +215,95 @@ public class Board {
     * Return: constructor has no return type
     */
    public Board(String inputBoard, Random random) throws IOException {
-      this.random = random;
-      File inputFile = new File (inputBoard);
-      Scanner scanner = new Scanner (inputFile);
+      this(BoardFile.read(inputBoard), random);
+   }
 
-      //first line of file is size of board
-      this.GRID_SIZE = scanner.nextInt();
-      this.grid = new int[GRID_SIZE][GRID_SIZE];
+   /*
+    * Name: Board
+    * Purpose: constructor
+    *    builds a board from a saved one
+    * Parameters: file (BoardFile) - the board to start from; its cells
+    *    become the board's own, so it must not be used afterwards;
+    *    random (Random) - object of Random class
+    * Return: constructor has no return type
+    */
+   public Board(BoardFile file, Random random) {
+      this(file.size, file.score, file.cells, random);
+   }
 
-      //second line of file is the score
-      this.score = scanner.nextInt();
+   /*
+    * Name: Board
+    * Purpose: constructor
+    *    builds a board from a snapshot without copying it; the snapshot's
+    *    cells are only copied if this board changes them in place
+    * Parameters: snapshot (BoardSnapshot) - the board to start from;
+    *    random (Random) - object of Random class
+    * Return: constructor has no return type
+    */
+   public Board(BoardSnapshot snapshot, Random random) {
+      this(snapshot.getSize(), snapshot.getScore(), snapshot.cells, random);
+      this.sharedCells = this.cells;
+   }
 
-      //remaining lines of file are the actual board
-      for (int row = 0; row < this.GRID_SIZE; row++) {
-         for (int col = 0; col < this.GRID_SIZE; col++) {
-            this.grid[row][col] = scanner.nextInt();
-         }
-      }
+   // Build a board of size x size around cells, which become its own
+   private Board(int size, int score, byte[] cells, Random random) {
+      this.random = random;
+      this.GRID_SIZE = size;
+      this.cells = cells;
+      this.score = score;
+      this.freeCells = new FreeCellIndex(GRID_SIZE * GRID_SIZE);
+      this.resetFreeCells();
+      this.updateMoveMask();
+      this.hash = zobristHash(this.cells);
+      this.setUndoDepth(DEFAULT_UNDO_DEPTH);
    }
 
    /*
     * Name: saveBoard
-    * Purpose: to save the current board to a file (specified by parameter)
+    * Purpose: to save the current board to a file in the binary format
+    *    described in BoardFile
     * Parameters: outputBoard (String) - to specify file to save board to
     * Return: void
     */
    public void saveBoard(String outputBoard) throws IOException {
-      File outputFile = new File (outputBoard);
-      PrintWriter output = new PrintWriter (outputFile);
-      output.println(this.GRID_SIZE);
-      output.println(this.score);
-
-      for (int row = 0; row < this.GRID_SIZE; row++) {
-         for (int col = 0; col < this.GRID_SIZE; col++) {
-            // write output board to file
-            output.print(this.grid[row][col] + " ");
-         }
-         output.println(); 
+      new BoardFile(this.GRID_SIZE, this.score, this.cells).write(outputBoard);
+   }
+
+   /*
+    * Name: resetFreeCells
+    * Purpose: private method to rebuild the index of open tiles from cells
+    * Parameters: none
+    * Return: void
+    */
+   private void resetFreeCells() {
+      for (int word = 0; word < this.freeCells.wordCount(); word++) {
+         this.freeCells.putWord(word, this.cells);
       }
-      output.close();
+      this.freeCells.recount();
    }
 
    /*
-    * Name: getOpenTilesCount
-    * Purpose: private method to find the count of open tiles
-    * Parameters: grid (int[][]) - 2048 grid
-    * Return: int (count of open tiles)
+    * Name: ensureWritable
+    * Purpose: private method to copy cells if a snapshot shares them,
+    *    before they are changed in place
+    * Parameters: none
+    * Return: void
     */
-   private int getOpenTilesCount(int[][] grid) {
-      int count = 0;
-      for (int row = 0; row < grid.length; row++) {
-         for (int col = 0; col < grid.length; col++) {
-            //if tile is open, count it
-            if (grid[row][col] == 0) {
-               count++;
-            }
-         }
+   private void ensureWritable() {
+      if (this.cells == this.sharedCells) {
+         this.cells = this.cells.clone();
       }
-      return count;
    }
 
    /*
     * Name: addRandomTile 
-    * Purpose: to add a random tile (2 or 4) to an open space on the board
+    * Purpose: to add a random tile (2 or 4) to an open space on the board;
+    *    the open tile is looked up in freeCells instead of scanning
     * Parameters: none
     * Return: void
     */
    public void addRandomTile() {
-      int count = getOpenTilesCount(this.grid);
+      int count = this.freeCells.count();
 
       //if no empty tiles, return without changing board
       if (count == 0) {
@@ -135,382 +312,608 @@ public class Board {
       int location = this.random.nextInt(count);
       int value = this.random.nextInt(100);
 
-      /*
-       * Variable index will track empty spots until it equals location.
-       * Index is initialized to 0 and can be incremented at each empty
-       * spot that isn't the location'th one
-       */
-      int index = 0;
-
-      for (int row = 0; row < this.GRID_SIZE; row++) {
-         for (int col = 0; col < this.GRID_SIZE; col++) {
-            if (this.grid[row][col] == 0) {
-
-               //first possible location is at index 0
-               if (index == location) {
-                  if (value < TWO_PROBABILITY) {
-                     this.grid[row][col] = 2;
-                  }
-                  else {
-                     this.grid[row][col] = 4;
-                  }
-               }
-               index++;
-            }
-         }
+      // freeCells numbers tiles in row-major order, so this is the same
+      // tile a row by row scan for the location'th open tile would find
+      int cell = this.freeCells.select(location);
+      // the tile is part of the move before it as far as undo goes; a
+      // tile added any other time can't be undone, so the history goes
+      if (this.history.isOpen()) {
+         this.history.record(cell, (byte) 0);
+      }
+      else {
+         this.history.clear();
+      }
+      this.ensureWritable();
+      // the moves the tile's row and column allowed while it was empty
+      int n = this.GRID_SIZE;
+      int row = cell / n;
+      int col = cell - row * n;
+      int rowBefore = lineMoves(this.cells, row * n, 1, n);
+      int colBefore = lineMoves(this.cells, col, n, n);
+      if (value < TWO_PROBABILITY) {
+         this.cells[cell] = 1;
+      }
+      else {
+         this.cells[cell] = 2;
+      }
+      this.hash ^= zobristKey(cell, this.cells[cell]);
+      this.freeCells.set(cell, false);
+      this.moveMask = this.spawnLineMask(this.moveMask, rowBefore,
+            lineMoves(this.cells, row * n, 1, n), row, 1,
+            Direction.LEFT, Direction.RIGHT);
+      this.moveMask = this.spawnLineMask(this.moveMask, colBefore,
+            lineMoves(this.cells, col, n, n), col, n,
+            Direction.UP, Direction.DOWN);
+      // only a tile added after a move is an event; every other change
+      // clears the events, and a move that changed the board has at
+      // least one, unless its slides weren't recorded
+      if (this.moveEvents != null && (this.moveEvents.size() > 0 ||
+               !this.moveEvents.isComplete())) {
+         this.moveEvents.add(MoveEvents.SPAWN, cell, cell, this.cells[cell]);
       }
-
    } 
 
    /*
     * Name: rotate
     * Purpose: to rotate the board clockwise or counterclockswise depending
     *    on the truth value of rotateClockwise;
-    *    rotation is 90 degrees
+    *    rotation is 90 degrees and is done in place, one square layer
+    *    (ring of tiles) at a time from the outside in
     * Parameters: rotateClockwise (boolean) - determines rotation direction
     * Return: void
     */
    public void rotate(boolean rotateClockwise) {
-      int[][] newGrid = new int[GRID_SIZE][GRID_SIZE];
-      for (int oldR = 0, newR = 0; oldR < this.GRID_SIZE; oldR++, newR++) {
-         for (int oldC = 0, newC = this.GRID_SIZE-1; 
-               oldC < this.GRID_SIZE; oldC++, newC--) {
+      this.history.rotated(rotateClockwise);
+      this.rotateCells(rotateClockwise);
+      this.clearMoveEvents();
+   }
+
+   /*
+    * Name: rotateCells
+    * Purpose: private method to rotate the tiles, open tile index and
+    *    move mask without touching the history
+    * Parameters: rotateClockwise (boolean) - determines rotation direction
+    * Return: void
+    */
+   private void rotateCells(boolean rotateClockwise) {
+      this.ensureWritable();
+      int n = this.GRID_SIZE;
+      byte[] c = this.cells;
+      for (int layer = 0; layer < n / 2; layer++) {
+         int first = layer;
+         int last = n - 1 - layer;
+         for (int i = first; i < last; i++) {
+            int offset = i - first;
+            // the four tiles that trade places, clockwise from the top
+            int top = first * n + i;
+            int right = i * n + last;
+            int bottom = last * n + (last - offset);
+            int left = (last - offset) * n + first;
+            byte topValue = c[top];
             if (rotateClockwise) {
-               //new row values from old column
-               //new column from other end of grid from old row
-               newGrid[newR][newC] = this.grid[oldC][oldR];
+               // left -> top, bottom -> left, right -> bottom, top -> right
+               c[top] = c[left];
+               c[left] = c[bottom];
+               c[bottom] = c[right];
+               c[right] = topValue;
             }
             else {
-               newGrid[newC][newR] = this.grid[oldR][oldC];
+               // right -> top, bottom -> right, left -> bottom, top -> left
+               c[top] = c[right];
+               c[right] = c[bottom];
+               c[bottom] = c[left];
+               c[left] = topValue;
             }
          }
       }
-      this.grid = newGrid;
-   }
-   /*
-    * Name: isPowerOfTwo 
-    * Purpose: private method to check if integer is a power of 2
-    * Parameters: n (int) - integer to test
-    * Return: boolean - true if n is a power of 2, false otherwise
-    */
-   private static boolean isPowerOfTwo(int n) {
-      //exponent has to be at least 1
-      //n has to be at least 2, so n > 1
-      //check if n is a power of 2
-      return ((n>1) && ((n & (n-1)) == 0));
+
+      this.resetFreeCells();
+      // every tile has moved, so hashing them again is cheaper than
+      // taking out their old keys and putting in their new ones
+      this.hash = zobristHash(this.cells);
+
+      // rotating doesn't change which moves are possible, only which
+      // direction each of them is in now
+      int mask = this.moveMask;
+      if (rotateClockwise) {
+         // old DOWN is new LEFT, old UP is new RIGHT,
+         // old LEFT is new UP, old RIGHT is new DOWN
+         this.moveMask = moveBit(Direction.LEFT, mask, Direction.DOWN) |
+            moveBit(Direction.RIGHT, mask, Direction.UP) |
+            moveBit(Direction.UP, mask, Direction.LEFT) |
+            moveBit(Direction.DOWN, mask, Direction.RIGHT);
+      }
+      else {
+         this.moveMask = moveBit(Direction.LEFT, mask, Direction.UP) |
+            moveBit(Direction.RIGHT, mask, Direction.DOWN) |
+            moveBit(Direction.UP, mask, Direction.RIGHT) |
+            moveBit(Direction.DOWN, mask, Direction.LEFT);
+      }
    }
 
    /*
-    * Name: isInputFileCorrectFormat
-    * Purpose: to test if file to be read is in the correct format
-    * Parameters: inputFile (String) - file to read from
-    * Return: boolean (true if file is in correct format, false otherwise)
+    * Name: findVectorScan
+    * Purpose: private method to look up VectorMoveScan.scan; the class is
+    *    only usable when the jdk.incubator.vector module is added, so it is
+    *    loaded by name and Board works without it
+    * Parameters: none
+    * Return: MethodHandle (the scan method, or null if unavailable)
     */
-   public static boolean isInputFileCorrectFormat(String inputFile) {
+   private static MethodHandle findVectorScan() {
       try {
-         //2nd line is positive int that shows score
-         //1st line is positive int showing grid
-         Scanner scanner = new Scanner (inputFile);
-         int gridSize = scanner.nextInt();
+         String pkg = Board.class.getPackageName();
+         Class<?> scanClass = Class.forName(pkg.isEmpty() ? 
+               "VectorMoveScan" : pkg + ".VectorMoveScan");
+         MethodHandle scan = MethodHandles.lookup().findStatic(scanClass,
+               "scan", MethodType.methodType(int.class, byte[].class, 
+                  int.class));
+         // run it once so a missing module shows up here, not mid game
+         scan.invoke(new byte[4], 2);
+         return scan;
+      }
+      catch (Throwable e) {
+         return null;
+      }
+   }
 
-         // check if gridsize is less than 2
-         if (gridSize < 2) {
-            return false;
-         }
+   // Return the bit for direction to if the bit for from is set in mask
+   private static int moveBit(Direction to, int mask, Direction from) {
+      return ((mask >>> from.ordinal()) & 1) << to.ordinal();
+   }
 
-         //check if score is negative
-         int scoreVal = scanner.nextInt();
+   /*
+    * Name: updateMoveMask
+    * Purpose: recompute which directions the board can move in, checking
+    *    all four directions in a single pass over the cells;
+    *    a direction is possible if some tile has an empty neighbour or an
+    *    equal neighbour on that side
+    * Parameters: none
+    * Return: void
+    */
+   private void updateMoveMask() {
+      this.moveMask = findMoveMask(this.cells, this.GRID_SIZE);
+   }
 
-         if (scoreVal < 0) {
-            return false;
+   /*
+    * Name: spawnLineMask
+    * Purpose: private method to update the move mask for a tile added to
+    *    one line, without rescanning the board; only that line changed, so
+    *    a direction it now allows is possible, and a direction it no longer
+    *    allows is possible only if another line allows it, which is looked
+    *    for line by line until one does
+    * Parameters: mask (int) - move mask before the tile was added;
+    *    before (int), after (int) - lineMoves of the line before and after;
+    *    line (int) - the row or column the tile was added to;
+    *    step (int) - 1 for a row, GRID_SIZE for a column;
+    *    toward (Direction), away (Direction) - the directions towards and
+    *       away from the line's first tile
+    * Return: int (the move mask with the tile added)
+    */
+   private int spawnLineMask(int mask, int before, int after, int line,
+         int step, Direction toward, Direction away) {
+      for (int i = 0; i < 2; i++) {
+         int lineBit = 1 << i;
+         int bit = 1 << (i == 0 ? toward : away).ordinal();
+         if ((after & lineBit) != 0) {
+            mask |= bit;
          }
-
-         for (int i = 0; i < gridSize; i++) {
-            for (int j = 0; j < gridSize; j++) {
-               int temp = scanner.nextInt();
-
-               //check if board values aren't powers of 2
-               if (!(isPowerOfTwo(temp))) {
-                  return false;
-               }
-            }
+         else if ((mask & bit) != 0 && (before & lineBit) != 0 &&
+               !this.otherLineMoves(line, step, lineBit)) {
+            mask &= ~bit;
          }
-         return true;
-      }
-      catch (Exception e) {
-         return false;
       }
+      return mask;
    }
 
    /*
-    * Name: canMoveRight
-    * Purpose: helper method to check if any row in grid can move right
-    * Parameters: none
-    * Return: boolean (true if moving right is possible)
-    */
-   private boolean canMoveRight() {
-      // true if nonzero number followed by a 0
-      // true if 2 consecutive nonzero numbers that are the same
-      for (int rowIndex = 0; rowIndex < this.GRID_SIZE; rowIndex++) {
-         for (int i = 0; i < this.GRID_SIZE - 1; i++) {
-            if (this.grid[rowIndex][i] != 0) {
-               if (this.grid[rowIndex][i+1] == 0) {
-                  return true;
-               }
-               else if (this.grid[rowIndex][i] == 
-                     this.grid[rowIndex][i+1]) {
-                  return true;
-               }
-            }
+    * Name: otherLineMoves
+    * Purpose: private method to check if any row (or column) but one
+    *    allows a move
+    * Parameters: skip (int) - the row or column to leave out;
+    *    step (int) - 1 to check rows, GRID_SIZE to check columns;
+    *    lineBit (int) - the lineMoves bit of the move
+    * Return: boolean (true if some other line allows the move)
+    */
+   private boolean otherLineMoves(int skip, int step, int lineBit) {
+      int n = this.GRID_SIZE;
+      int stride = (step == 1) ? n : 1;
+      for (int line = 0; line < n; line++) {
+         if (line != skip &&
+               (lineMoves(this.cells, line * stride, step, n) & lineBit) != 0) {
+            return true;
          }
       }
       return false;
    }
 
    /*
-    * Name: canMoveLeft
-    * Purpose: helper method to check if any row in grid can move left
-    * Parameters: none
-    * Return: boolean (true if moving left is possible)
-    */
-   private boolean canMoveLeft() {
-      // true if 0 followed by a nonzero number (from left to right) in row
-      // true if 2 consecutive numbers in row that are the same
-      for (int rowIndex = 0; rowIndex < this.GRID_SIZE; rowIndex++) {
-         for (int i = 0; i < this.GRID_SIZE - 1; i++) {
-            if (this.grid[rowIndex][i] == 0) {
-               if (this.grid[rowIndex][i+1] != 0) {
-                  return true;
-               }
-            }
-            else if (this.grid[rowIndex][i] == this.grid[rowIndex][i+1]) {
-               return true;
-            }
+    * Name: lineMoves
+    * Purpose: find which ways one row or column of a grid can slide
+    * Parameters: c (byte[]) - exponents of the grid, row by row;
+    *    first (int) - cell the line starts at;
+    *    step (int) - distance between its cells (1 for a row, n for a
+    *       column);
+    *    n (int) - width of the grid
+    * Return: int (bit 0 set if the line can slide towards its first tile,
+    *    bit 1 if it can slide away from it)
+    */
+   static int lineMoves(byte[] c, int first, int step, int n) {
+      int moves = 0;
+      int cell = first;
+      for (int i = 1; i < n && moves != 3; i++) {
+         byte value = c[cell];
+         byte next = c[cell + step];
+         if (next != 0 && (value == 0 || next == value)) {
+            moves |= 1;
+         }
+         if (value != 0 && (next == 0 || next == value)) {
+            moves |= 2;
          }
+         cell += step;
       }
-      return false;
+      return moves;
    }
 
    /*
-    * Name: canMoveUp
-    * Purpose: helper method to check if any column in grid can move up
-    * Parameters: none
-    * Return: boolean (true if moving up is possible)
-    */
-   private boolean canMoveUp() {
-      // true if 0 is above any nonzero number in column
-      // true if 2 consecutive equal nonzero integers in column
-      for (int colIndex = 0; colIndex < this.GRID_SIZE; colIndex++) {
-         for (int r = 0; r < this.GRID_SIZE - 1; r++) {
-            if (this.grid[r][colIndex] == 0) {
-               if (this.grid[r+1][colIndex] != 0) {
-                  return true;
-               }
-            }
-            else if (this.grid[r][colIndex] == this.grid[r+1][colIndex]) {
-               return true;
-            }
+    * Name: findMoveMask
+    * Purpose: the pass behind updateMoveMask, for any grid of exponents;
+    *    also used by BoardSnapshot
+    * Parameters: c (byte[]) - exponents of the grid, row by row;
+    *    n (int) - width of the grid
+    * Return: int (bit i set if the grid can move in Direction.values()[i])
+    */
+   static int findMoveMask(byte[] c, int n) {
+      if (VECTOR_SCAN != null && n >= VECTOR_THRESHOLD) {
+         try {
+            return (int) VECTOR_SCAN.invokeExact(c, n);
+         }
+         catch (Throwable e) {
+            throw new IllegalStateException("VectorMoveScan failed", e);
          }
       }
-      return false;
-   }
 
-   /*
-    * Name: canMoveDown
-    * Purpose: helper method to check if any column in grid can move down
-    * Parameters: none
-    * Return: boolean (true if moving down is possible)
-    */
-   private boolean canMoveDown() {
-      //true if nonzero number above 0 in column
-      //true if 2 consecutive equal nonzero numbers in column
-      for (int colIndex = 0; colIndex < this.GRID_SIZE; colIndex++) {
-         for (int r = 0; r < this.GRID_SIZE - 1; r++) {
-            if (this.grid[r][colIndex] != 0) {
-               if (this.grid[r+1][colIndex] == 0) {
-                  return true;
+      int left = 1 << Direction.LEFT.ordinal();
+      int right = 1 << Direction.RIGHT.ordinal();
+      int up = 1 << Direction.UP.ordinal();
+      int down = 1 << Direction.DOWN.ordinal();
+      int all = left | right | up | down;
+
+      int mask = 0;
+      for (int row = 0; row < n && mask != all; row++) {
+         for (int col = 0; col < n; col++) {
+            int cell = row * n + col;
+            byte value = c[cell];
+            if (col + 1 < n) {
+               byte next = c[cell + 1];
+               if (value != 0 && (next == 0 || next == value)) {
+                  mask |= right;
+               }
+               if (next != 0 && (value == 0 || next == value)) {
+                  mask |= left;
+               }
+            }
+            if (row + 1 < n) {
+               byte below = c[cell + n];
+               if (value != 0 && (below == 0 || below == value)) {
+                  mask |= down;
                }
-               else if (this.grid[r][colIndex] ==
-                     this.grid[r+1][colIndex]) {
-                  return true;
+               if (below != 0 && (value == 0 || below == value)) {
+                  mask |= up;
                }
             }
          }
       }
-      return false;
+      return mask;
+   }
+   /*
+    * Name: isInputFileCorrectFormat
+    * Purpose: to test if file to be read is in the correct format, binary
+    *    or text; it is correct if BoardFile can load it
+    * Parameters: inputFile (String) - file to read from
+    * Return: boolean (true if file is in correct format, false otherwise)
+    */
+   public static boolean isInputFileCorrectFormat(String inputFile) {
+      try {
+         BoardFile.read(inputFile);
+         return true;
+      }
+      catch (IOException e) {
+         return false;
+      }
    }
 
    /*
-    * Name: moveRight
-    * Purpose: perform the actual move to the right
-    * Parameters: none
-    * Return: void
+    * Name: slideLine
+    * Purpose: slide and merge one row or column of src and write the
+    *    result to the same line of dst; the line is walked from the side
+    *    its tiles move towards, so every direction is the same loop.
+    *    Each cell is handed to state as soon as it is final, so the hash,
+    *    move mask and undo record are worked out in the same walk
+    * Parameters: src (byte[]) - cells to read from;
+    *    dst (byte[]) - cells to write to;
+    *    dstFree (FreeCellIndex) - open tiles of dst, marked with put;
+    *       null to leave the index alone;
+    *    events (MoveEvents) - where to record the tiles that slid and
+    *       merged, or null;
+    *    state (SlideState) - where to settle each cell of the line;
+    *    start (int) - cell at the end of the line the tiles move towards;
+    *    step (int) - distance between cells of the line, away from start;
+    *    n (int) - number of cells in the line
+    * Return: int (score gained, or NO_CHANGE if the line did not change)
     */
-   private void moveRight() {
-      for (int rowVal = 0; rowVal < this.GRID_SIZE; rowVal++) {
-         ArrayList<Integer> row = new ArrayList<Integer>();
-         // add to arraylist from row array
-         for (int i = 0; i < this.GRID_SIZE; i++) {
-            row.add(i, this.grid[rowVal][i]);
-         }
+   private static int slideLine(byte[] src, byte[] dst,
+         FreeCellIndex dstFree, MoveEvents events, SlideState state,
+         int start, int step, int n) {
+      int gained = 0;
+      boolean changed = false;
 
-         // index = pointer for which square we're looking at
-         int index = this.GRID_SIZE - 1;
-
-         // firstNumIndex = closest nonzero number before current index
-         // initialized to -1 so we'll know if there are no nonzeros
-         int firstNumIndex = -1;
-
-         while (index > 0) {
-            if (!(row.get(index).equals(0))) {
-               firstNumIndex = -1;
-               //loop to find rightmost nonzero num before index
-               for (int i = 0; i < index; i++) {
-                  if (!(row.get(i).equals(0))) {
-                     firstNumIndex = i;
-                  }
-               }
-               if (firstNumIndex >= 0) {
-                  if (row.get(index).equals(row.get(firstNumIndex))) {
-                     row.set(index, (row.get(index))*2);
-                     row.set(firstNumIndex, 0);
-                     this.score += row.get(index);
-                     index--;
-                  }
-                  //else if number at index is not same as at firstNumIndex
-                  else {
-                     //move on; index is now one number to the left
-                     index--;
-                  }
-               }
-               //else if no nonzero numbers before last, while loop done
-               else {
-                  index = 0;
-               }
+      // target = cell the next tile that doesn't merge slides into
+      // pending = exponent just placed before target that can still merge;
+      //    0 once it has merged so a tile only merges once; every cell
+      //    before target but a pending one is final and settled
+      int target = start;
+      int pending = 0;
+      int end = start + step * n;
+
+      for (int cell = start; cell != end; cell += step) {
+         byte exponent = src[cell];
+         if (exponent == 0) {
+            continue;
+         }
+         if (exponent == pending) {
+            int merged = target - step;
+            dst[merged] = (byte) (exponent + 1);
+            gained += 1 << (exponent + 1);
+            pending = 0;
+            changed = true;
+            if (events != null) {
+               events.add(MoveEvents.MERGE, cell, merged,
+                     (byte) (exponent + 1));
             }
-            // else if number at starting index is 0
-            else {
-               firstNumIndex = -1;
-               for (int i = 0; i < index; i++) {
-                  if (!(row.get(i).equals(0))) {
-                     firstNumIndex = i;
-                  }
-               }
-               // if there exists a nonzero number 
-               // beyond current (index) number, switch them
-               if (firstNumIndex >= 0) {
-                  row.set(index, (row.get(firstNumIndex)));
-                  row.set(firstNumIndex, 0);
-               }
-               // if no nonzero numbers, exit while loop
-               else {
-                  index = 0;
+            state.settle(src, dst, merged, 
+                  (merged == start) ? -1 : merged - step);
+         }
+         else {
+            if (pending != 0) {
+               // the tile before can't merge any more
+               state.settle(src, dst, target - step,
+                     (target - step == start) ? -1 : target - 2 * step);
+            }
+            dst[target] = exponent;
+            if (dstFree != null) {
+               dstFree.put(target, false);
+            }
+            if (target != cell) {
+               changed = true;
+               if (events != null) {
+                  events.add(MoveEvents.SLIDE, cell, target, exponent);
                }
             }
-            //closes while loop  
+            pending = exponent;
+            target += step;
          }
-         for (int i = 0; i < this.GRID_SIZE; i++) {
-            this.grid[rowVal][i] = (row.get(i)).intValue();
+      }
+      if (pending != 0) {
+         state.settle(src, dst, target - step,
+               (target - step == start) ? -1 : target - 2 * step);
+      }
+      // clear the rest of the line, behind the last tile
+      for (; target != end; target += step) {
+         dst[target] = 0;
+         if (dstFree != null) {
+            dstFree.put(target, true);
          }
-         //closes for loop that iterates through rows of grid   
+         state.settle(src, dst, target, 
+               (target == start) ? -1 : target - step);
       }
+      return changed ? gained : NO_CHANGE;
    }
 
    /*
-    * Name: moveLeft
-    * Purpose: perform the actual move to the left
-    * Parameters: none
-    * Return: void
+    * Name: slideLines
+    * Purpose: slide the lines numbered from (inclusive) to to (exclusive)
+    *    of an n x n grid in the given direction into dst; static so
+    *    BoardSnapshot moves the same way
+    * Parameters: n (int) - width of the grid;
+    *    direction (Direction) - which direction to move;
+    *    src (byte[]) - cells to read from;
+    *    dst (byte[]) - cells to write the moved lines to;
+    *    dstFree (FreeCellIndex) - open tiles of dst, or null;
+    *    events (MoveEvents) - where to record the tiles moved, or null;
+    *    state (SlideState) - started for this direction; gathers the
+    *       hash change, move mask and undo changes of the lines;
+    *    from (int), to (int) - range of rows or columns to slide
+    * Return: int (score gained, or NO_CHANGE if no line changed)
     */
-   private void moveLeft() {
-      for (int rowVal = 0; rowVal < this.GRID_SIZE; rowVal++) {
-         ArrayList<Integer> row = new ArrayList<Integer>();
-         for (int i = 0; i < this.GRID_SIZE; i++) {
-            row.add(i, this.grid[rowVal][i]);
+   static int slideLines(int n, Direction direction, byte[] src,
+         byte[] dst, FreeCellIndex dstFree, MoveEvents events,
+         SlideState state, int from, int to) {
+      int gained = 0;
+      boolean changed = false;
+      for (int line = from; line < to; line++) {
+         state.firstLine = (line == from);
+         int lineGained;
+         switch (direction) {
+            case LEFT:
+               lineGained = slideLine(src, dst, dstFree, events, state,
+                     line * n, 1, n);
+               break;
+            case RIGHT:
+               lineGained = slideLine(src, dst, dstFree, events, state,
+                     line * n + n - 1, -1, n);
+               break;
+            case UP:
+               lineGained = slideLine(src, dst, dstFree, events, state,
+                     line, n, n);
+               break;
+            default:
+               lineGained = slideLine(src, dst, dstFree, events, state,
+                     (n - 1) * n + line, -n, n);
+               break;
+         }
+         if (lineGained != NO_CHANGE) {
+            gained += lineGained;
+            changed = true;
          }
+      }
+      return changed ? gained : NO_CHANGE;
+   }
 
-         int index = 0;
-         int firstNumIndex = -1;
-         while (index < this.GRID_SIZE - 1) {
-            if (!(row.get(index).equals(0))) {
-               firstNumIndex = -1;
-
-               //loop to find leftmost nonzero number after index
-               for (int i = this.GRID_SIZE - 1; i > index; i--) {
-                  if (!(row.get(i).equals(0))) {
-                     firstNumIndex = i;
-                  }
-               }
-               if (firstNumIndex >= 0) {
-                  if (row.get(index).equals(row.get(firstNumIndex))) {
-                     row.set(index, (row.get(index))*2);
-                     row.set(firstNumIndex, 0);
-                     this.score += row.get(index);
-                     index++;
-                  }
-                  else {
-                     index++;
-                  }
-               }
-               // if no first nonzero number, exit while loop
-               else {
-                  index = this.GRID_SIZE - 1;
-               }
-            }
+   /*
+    * Name: slideGrid
+    * Purpose: slide every line of cells in the given direction into dst
+    *    in a single pass, tracking whether anything moved, and gather the
+    *    rest of the move in slide, which must be started;
+    *    boards of PARALLEL_THRESHOLD or more are split across the common
+    *    ForkJoin pool, since rows (or columns) don't affect each other
+    * Parameters: direction (Direction) - which direction to move;
+    *    dst (byte[]) - cells to write the moved board to;
+    *    dstFree (FreeCellIndex) - index to record the open tiles of dst in
+    * Return: int (score gained, or NO_CHANGE if the board did not change)
+    */
+   private int slideGrid(Direction direction, byte[] dst,
+         FreeCellIndex dstFree) {
+      if (this.GRID_SIZE < PARALLEL_THRESHOLD) {
+         int gained = slideLines(this.GRID_SIZE, direction, this.cells, dst,
+               dstFree, this.moveEvents, this.slide, 0, this.GRID_SIZE);
+         dstFree.recount();
+         return gained;
+      }
+      // the tasks would all have to add to the one buffer, so the slides
+      // of a parallel move aren't recorded
+      if (this.moveEvents != null) {
+         this.moveEvents.markIncomplete();
+      }
 
-            // else if number at starting index is 0
-            else {
-               firstNumIndex = -1;
-               for (int i = this.GRID_SIZE - 1; i > index; i--) {
-                  if (!(row.get(i).equals(0))) {
-                     firstNumIndex = i;
-                  }
-               }
-               // if nonzero number exists beyond leading 0, switch w/ index
-               if (firstNumIndex >= 0) {
-                  row.set(index, (row.get(firstNumIndex)));
-                  row.set(firstNumIndex, 0);
-               }
+      SlideState tasks = ForkJoinPool.commonPool().invoke(
+            new SlideTask(direction, dst, 0, this.GRID_SIZE));
+      this.slide.hash = tasks.hash;
+      this.slide.mask = tasks.mask;
+      // the tasks can't share the history, so the changes are found by
+      // comparing the boards; one more pass, but only on these boards
+      this.history.recordChanges(this.cells, dst);
 
-               // else if no nonzero numbers, exit while loop
-               else {
-                  index = this.GRID_SIZE - 1;
-               }
-            }
-         }
+      // columns share index words, so the open tiles are filled in after
+      // the slide, a whole word per task
+      IntStream.range(0, dstFree.wordCount()).parallel()
+         .forEach(word -> dstFree.putWord(word, dst));
+      dstFree.recount();
+      return tasks.gained;
+   }
 
-         for (int i = 0; i < this.GRID_SIZE; i++) {
-            this.grid[rowVal][i] = (row.get(i)).intValue();
-         }
+   /*
+    * Name: SlideTask
+    * Purpose: slides a range of lines for slideGrid, splitting in half
+    *    until a range is small enough; each task returns its own state,
+    *    score included, so the totals are added up without any shared
+    *    counter
+    */
+   private class SlideTask extends RecursiveTask<SlideState> {
+      private static final long serialVersionUID = 1L;
+
+      private final Direction direction;
+      private final byte[] dst;
+      private final int from;
+      private final int to;
+
+      SlideTask(Direction direction, byte[] dst, int from, int to) {
+         this.direction = direction;
+         this.dst = dst;
+         this.from = from;
+         this.to = to;
       }
+
+      @Override
+         protected SlideState compute() {
+            int lines = Math.max(1, PARALLEL_TASK_TILES / GRID_SIZE);
+            if (to - from <= lines) {
+               SlideState state = new SlideState();
+               state.start(direction, GRID_SIZE, null);
+               state.gained = slideLines(GRID_SIZE, direction, cells, dst,
+                     null, null, state, from, to);
+               return state;
+            }
+            int middle = (from + to) >>> 1;
+            SlideTask first = new SlideTask(direction, dst, from, middle);
+            first.fork();
+            SlideState second =
+               new SlideTask(direction, dst, middle, to).compute();
+            SlideState state = first.join();
+            state.join(second, dst, middle, GRID_SIZE);
+            return state;
+         }
    }
 
    /*
-    * Name: moveUp
-    * Purpose: perform the actual move up
-    * Parameters: none
-    * Return: void
+    * Name: tryMove
+    * Purpose: Performs a move operation in the specified direction if the
+    *    board can move that way, in one pass over the board: as the slide
+    *    writes each tile it checks whether anything moved, records the
+    *    tile for undo and in the hash if it changed, and works out the
+    *    moves the new board allows (see SlideState). Boards of
+    *    PARALLEL_THRESHOLD or more find the tiles to undo in a second pass
+    * Parameters: direction (Direction) - indicates which direction to move
+    * Return: MoveResult (whether the board changed and the score gained;
+    *    the same object is reused by the next call)
     */
-   private void moveUp() {
-      // moving up is the same as rotating counterclockwise and moving left
-      // then rotate clockwise
-      this.rotate(false);
-      this.moveLeft();
-      this.rotate(true);
+   public MoveResult tryMove(Direction direction) {
+      this.clearMoveEvents();
+      if (!this.canMove(direction)) {
+         this.moveResult.set(false, 0);
+         return this.moveResult;
+      }
+      if (this.spareCells == null) {
+         this.spareCells = new byte[GRID_SIZE * GRID_SIZE];
+      }
+      if (this.spareFreeCells == null) {
+         this.spareFreeCells = new FreeCellIndex(GRID_SIZE * GRID_SIZE);
+      }
+      // the step is begun first so the slide can record into it; the
+      // move mask is exact, so a move allowed by it always changes
+      // the board and the step is never left empty
+      this.history.begin(this.score, this.moveMask, this.hash);
+      this.slide.start(direction, this.GRID_SIZE, this.history);
+      int gained = this.slideGrid(direction, this.spareCells, 
+            this.spareFreeCells);
+      if (gained == NO_CHANGE) {
+         this.moveResult.set(false, 0);
+         return this.moveResult;
+      }
+      this.hash ^= this.slide.hash;
+
+      // the moved cells become the board and the old cells are reused
+      // for the next move, unless a snapshot still holds them
+      byte[] oldCells = this.cells;
+      this.cells = this.spareCells;
+      this.spareCells = (oldCells == this.sharedCells) ? null : oldCells;
+      FreeCellIndex oldFreeCells = this.freeCells;
+      this.freeCells = this.spareFreeCells;
+      this.spareFreeCells = oldFreeCells;
+      this.score += gained;
+      this.moveMask = this.slide.mask;
+
+      this.moveResult.set(true, gained);
+      return this.moveResult;
    }
 
    /*
-    * Name: moveDown
-    * Purpose: perform the actual move down
-    * Parameters: none
+    * Name: setMoveEvents
+    * Purpose: have every move from now on record the tiles it slides and
+    *    merges, and the tile added after it, in events; the next move,
+    *    or any other change to the grid, clears them
+    * Parameters: events (MoveEvents) - buffer to record in, or null to
+    *    stop recording
     * Return: void
     */
-   private void moveDown() {
-      //moving down is same as rotating counterclockwise and moving right
-      //then rotate clockwise
-      this.rotate(false);
-      this.moveRight();
-      this.rotate(true);
+   public void setMoveEvents(MoveEvents events) {
+      this.moveEvents = events;
+   }
+
+   // Forget the latest move's events, before the grid changes again
+   private void clearMoveEvents() {
+      if (this.moveEvents != null) {
+         this.moveEvents.clear();
+      }
    }
 
    /*
@@ -520,27 +923,7 @@ public class Board {
     * Return: boolean (true if move occurs successfully, false otherwise)
     */
    public boolean move(Direction direction) {
-      if (!this.canMove(direction)) {
-         return false;
-      } 
-      // if canMove returns true, enable undo
-      this.enableUndo();
-
-      // move in specified direction
-
-      if (direction.equals(Direction.RIGHT)) {
-         this.moveRight();
-      }
-      else if (direction.equals(Direction.LEFT)) {
-         this.moveLeft();
-      }
-      else if (direction.equals(Direction.UP)) {
-         this.moveUp();
-      }
-      else if (direction.equals(Direction.DOWN)) {
-         this.moveDown();
-      }
-      return true;
+      return this.tryMove(direction).isChanged();
    }
 
    /*
@@ -551,12 +934,7 @@ public class Board {
     */
    public boolean isGameOver() {
       //game is over if cannot move in any direction
-      if (!canMoveLeft() && !canMoveRight() &&
-            !canMoveUp() && !canMoveDown()) { 
-         System.out.println("Game Over!");
-         return true;
-      }
-      return false;
+      return this.moveMask == 0;
    }
 
    /*
@@ -566,41 +944,7 @@ public class Board {
     * Return: boolean (true if can move in specified direction)
     */
    public boolean canMove(Direction direction) {
-      // check which direction is passed in
-      // check if canMove in that direction by calling helper canMove method
-      if (direction.equals(Direction.RIGHT)) {
-         return this.canMoveRight();
-      }
-      else if (direction.equals(Direction.LEFT)) {
-         return this.canMoveLeft();
-      }
-      else if (direction.equals(Direction.UP)) {
-         return this.canMoveUp();
-      }
-      else if (direction.equals(Direction.DOWN)) {
-         return this.canMoveDown();
-      }
-      return false;
-   }
-
-   /*
-    * Name: enableUndo
-    * Purpose: helper method to initialize undoGrid and undoScore
-    *  to stored values in grid and score;
-    *  this method helps in the implementation of the extra credit method 
-    * Parameters: none
-    * Return: void
-    */
-   private void enableUndo() {
-      // undoGrid is initialized to hold same values as original grid
-      // undoScore is initialized 
-      this.undoGrid = new int[GRID_SIZE][GRID_SIZE];
-      for (int i = 0; i < this.GRID_SIZE; i++) {
-         for (int j = 0; j < this.GRID_SIZE; j++) {
-            undoGrid[i][j] = this.grid[i][j];
-         }
-      }
-      this.undoScore = this.score;
+      return (this.moveMask & (1 << direction.ordinal())) != 0;
    }
 
    /*
@@ -610,17 +954,15 @@ public class Board {
     * Return: boolean (true if undo can be called, false otherwise)
     */
    public boolean canUndo() {
-      // if undoGrid is null, undo has already been called
-      // it cannot be called twice in a row
-      if (this.undoGrid == null) {
-         return false;
-      }
-      return true;
+      return this.history.canUndo();
    }
 
    /*
     * Name: undo
-    * Purpose: undo last move (should be called when 'u' key is pressed)
+    * Purpose: undo last move (should be called when 'u' key is pressed),
+    *    bringing back the board from before it; as with the original single
+    *    undo, rotations made since the move are undone with it. Can be
+    *    called again to go further back
     * Parameters: none
     * Return: void
     */
@@ -629,32 +971,211 @@ public class Board {
       if (!canUndo()) {
          return;
       }
-      // if undo is possible and is called, set grid and score to undoGrid
-      //   and undoScore
-      this.grid = this.undoGrid;
-      this.score = this.undoScore;
-      this.undoGrid = null;
+      this.applyStep(this.history.undo(), true);
+   }
+
+   /*
+    * Name: canRedo
+    * Purpose: helper method to check if redo can be called
+    * Parameters: none
+    * Return: boolean (true if a move has been undone and nothing has
+    *    changed the board since)
+    */
+   public boolean canRedo() {
+      return this.history.canRedo();
+   }
+
+   /*
+    * Name: redo
+    * Purpose: redo the last undone move, with the same tile added after it
+    *    as the first time, and the rotations made after it
+    * Parameters: none
+    * Return: void
+    */
+   public void redo() {
+      if (!canRedo()) {
+         return;
+      }
+      this.applyStep(this.history.redo(), false);
+   }
+
+   /*
+    * Name: applyStep
+    * Purpose: private method to undo or redo a step of the history
+    * Parameters: slot (int) - slot of the step in the history;
+    *    backwards (boolean) - true to undo, false to redo
+    * Return: void
+    */
+   private void applyStep(int slot, boolean backwards) {
+      this.clearMoveEvents();
+      // the changes were recorded before the board was turned
+      int turns = this.history.getTurns(slot);
+      if (backwards) {
+         this.turn(-turns);
+      }
+
+      // updating the open tile index tile by tile is quicker for a few
+      // tiles, rebuilding it is quicker for many
+      boolean rebuild =
+         this.history.getChangeCount(slot) > this.cells.length / 16;
+      this.ensureWritable();
+      this.history.swapChanges(slot, this.cells,
+            rebuild ? null : this.freeCells, backwards);
+      if (rebuild) {
+         this.resetFreeCells();
+      }
+      this.score = this.history.swapScore(slot, this.score);
+      this.moveMask = this.history.swapMask(slot, this.moveMask);
+      this.hash = this.history.swapHash(slot, this.hash);
+      if (!backwards) {
+         this.turn(turns);
+      }
    }
 
+   // Rotate the tiles by quarter turns, clockwise if positive, without
+   // touching the history; three turns one way are one the other way
+   private void turn(int quarters) {
+      switch (quarters & 3) {
+         case 1:
+            this.rotateCells(true);
+            break;
+         case 2:
+            this.rotateCells(true);
+            this.rotateCells(true);
+            break;
+         case 3:
+            this.rotateCells(false);
+            break;
+         default:
+            break;
+      }
+   }
+
+   /*
+    * Name: zobristKey
+    * Purpose: the key of one tile for the Zobrist hash; keys are made by
+    *    mixing the position and exponent with the splitmix64 finalizer
+    *    rather than looked up in a table, which for a large board would
+    *    be bigger than the board itself
+    * Parameters: cell (int) - position of the tile;
+    *    exponent (int) - exponent of the tile
+    * Return: long (the key, 0 for an empty tile)
+    */
+   static long zobristKey(int cell, int exponent) {
+      if (exponent == 0) {
+         return 0;
+      }
+      long z = (((long) cell << 8) | (exponent & 0xFF)) *
+         0x9E3779B97F4A7C15L;
+      z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+      z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+      return z ^ (z >>> 31);
+   }
+
+   // Return the Zobrist hash of a grid of exponents, from scratch
+   static long zobristHash(byte[] c) {
+      long hash = 0;
+      for (int cell = 0; cell < c.length; cell++) {
+         hash ^= zobristKey(cell, c[cell]);
+      }
+      return hash;
+   }
 
-   // Return the reference to the 2048 Grid
+   /*
+    * Name: getGrid
+    * Purpose: build a copy of the 2048 Grid holding tile values. This used
+    *    to return the board's own array; the board now stores exponents,
+    *    so the copy is a new int[GRID_SIZE][GRID_SIZE] on every call and
+    *    writing to it doesn't change the board. Code that reads the board
+    *    often (the GUI's refresh, the AIs) should use getTile, or snapshot
+    *    for another thread
+    * Parameters: none
+    * Return: int[][] (a new grid of tile values, 0 for an empty tile)
+    */
    public int[][] getGrid() {
+      int[][] grid = new int[GRID_SIZE][GRID_SIZE];
+      for (int row = 0; row < GRID_SIZE; row++) {
+         for (int col = 0; col < GRID_SIZE; col++) {
+            grid[row][col] = getTile(row, col);
+         }
+      }
       return grid;
    }
 
+   /*
+    * Name: snapshot
+    * Purpose: take an immutable copy of the board that other threads can
+    *    read while this one keeps playing; the cells aren't copied but
+    *    shared until this board next changes them
+    * Parameters: none
+    * Return: BoardSnapshot (the board as it is now)
+    */
+   public BoardSnapshot snapshot() {
+      this.sharedCells = this.cells;
+      return new BoardSnapshot(GRID_SIZE, score, moveMask, hash, cells);
+   }
+
+   /*
+    * Name: zobristHash
+    * Purpose: get the 64 bit Zobrist hash of the tiles, which is kept up
+    *    to date as the board changes, so getting it costs nothing;
+    *    boards with the same tiles have the same hash, whatever the score
+    * Parameters: none
+    * Return: long (the hash)
+    */
+   public long zobristHash() {
+      return this.hash;
+   }
+
+   // Return the value of the tile at row, col (0 if empty)
+   public int getTile(int row, int col) {
+      int exponent = cells[row * GRID_SIZE + col];
+      return exponent == 0 ? 0 : 1 << exponent;
+   }
+
    // Return the score
    public int getScore() {
       return score;
    }
 
+   /*
+    * Name: equals
+    * Purpose: boards are equal if they have the same size, tiles and
+    *    score; their random numbers and undo histories aren't compared.
+    *    Boards change, so one kept in a hash set must not be moved; to key
+    *    a table by position, use zobristHash instead
+    * Parameters: other (Object) - object to compare to
+    * Return: boolean (true if other is an equal board)
+    */
+   @Override
+      public boolean equals(Object other) {
+         if (this == other) {
+            return true;
+         }
+         if (!(other instanceof Board)) {
+            return false;
+         }
+         Board board = (Board) other;
+         // the hashes differ for almost every pair of different boards,
+         // so the tiles are only compared when they match
+         return this.hash == board.hash && this.score == board.score &&
+            this.GRID_SIZE == board.GRID_SIZE &&
+            Arrays.equals(this.cells, board.cells);
+      }
+
+   @Override
+      public int hashCode() {
+         return Long.hashCode(this.hash);
+      }
+
    @Override
       public String toString() {
          StringBuilder outputString = new StringBuilder();
          outputString.append(String.format("Score: %d\n", score));
          for (int row = 0; row < GRID_SIZE; row++) {
             for (int column = 0; column < GRID_SIZE; column++)
-               outputString.append(grid[row][column] == 0 ? "    -" :
-                     String.format("%5d", grid[row][column]));
+               outputString.append(getTile(row, column) == 0 ? "    -" :
+                     String.format("%5d", getTile(row, column)));
 
             outputString.append("\n");
          }
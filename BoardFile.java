@@ -0,0 +1,299 @@
+/**
+ * File: BoardFile.java
+ * Reads and writes saved boards. Boards are saved in a binary format:
+ *
+ *    int   MAGIC ("2048" in ASCII)
+ *    int   format VERSION
+ *    int   size of the board
+ *    int   score
+ *    byte  exponent of every tile in row-major order (0 for an empty tile)
+ *
+ * all big-endian. Loading maps a large file into memory and copies the
+ * tiles out in one bulk get, and reads a small one with a plain read,
+ * which costs less than setting up a mapping; saving hands the header and
+ * the tiles to the channel in one gathering write, so neither goes tile
+ * by tile. A mapping is released as soon as the tiles are copied out,
+ * rather than whenever the garbage collector gets to it: on Windows a
+ * mapped file can't be replaced, which would make saving over the file
+ * just loaded (as CheckpointWriter does) fail.
+ *
+ * Files in the old text format (size, score, then every tile value,
+ * separated by whitespace) are recognised and still load.
+ *
+ **/
+
+import java.util.*;
+import java.io.*;
+import java.lang.invoke.*;
+import java.lang.reflect.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.nio.file.*;
+
+/*
+ * Name: BoardFile
+ * Purpose: To hold the contents of a saved board, and load and save them
+ */
+public class BoardFile {
+   public static final int MAGIC = 0x32303438;
+   public static final int VERSION = 1;
+
+   // magic, version, size and score
+   private static final int HEADER_BYTES = 16;
+
+   // largest exponent whose tile value still fits in an int
+   private static final int MAX_EXPONENT = 30;
+
+   // files at least this long are mapped instead of read
+   private static final long MAP_THRESHOLD = 1 << 20;
+
+   // sun.misc.Unsafe.invokeCleaner bound to the Unsafe instance, which
+   // unmaps a mapped buffer; null if the JDK doesn't have it
+   private static final MethodHandle UNMAP = findUnmap();
+
+   public final int size;
+   public final int score;
+   public final byte[] cells;
+
+   /*
+    * Name: BoardFile
+    * Purpose: constructor
+    * Parameters: size (int) - width of the board;
+    *    score (int) - score of the game;
+    *    cells (byte[]) - exponent of every tile in row-major order
+    * Return: constructor has no return type
+    */
+   public BoardFile(int size, int score, byte[] cells) {
+      this.size = size;
+      this.score = score;
+      this.cells = cells;
+   }
+
+   /*
+    * Name: read
+    * Purpose: load a saved board in either format
+    * Parameters: inputBoard (String) - file to load
+    * Return: BoardFile (the board in the file)
+    */
+   public static BoardFile read(String inputBoard) throws IOException {
+      try (FileChannel channel = FileChannel.open(Paths.get(inputBoard),
+               StandardOpenOption.READ)) {
+         long length = channel.size();
+         ByteBuffer magic = ByteBuffer.allocate(4);
+         channel.read(magic, 0);
+         //anything that doesn't start with the magic number is text
+         if (magic.getInt(0) != MAGIC) {
+            return readText(inputBoard);
+         }
+         return readBinary(channel, length);
+      }
+   }
+
+   /*
+    * Name: readBinary
+    * Purpose: private method to load a board in the binary format
+    * Parameters: channel (FileChannel) - open file to load;
+    *    length (long) - size of the file in bytes
+    * Return: BoardFile (the board in the file)
+    */
+   private static BoardFile readBinary(FileChannel channel, long length)
+      throws IOException {
+      if (length < MAP_THRESHOLD) {
+         ByteBuffer buffer = ByteBuffer.allocate((int) length);
+         while (buffer.hasRemaining()) {
+            if (channel.read(buffer, buffer.position()) < 0) {
+               break;
+            }
+         }
+         buffer.flip();
+         return readAll(buffer);
+      }
+      MappedByteBuffer buffer =
+         channel.map(FileChannel.MapMode.READ_ONLY, 0, length);
+      try {
+         return readAll(buffer);
+      }
+      finally {
+         unmap(buffer);
+      }
+   }
+
+   // Parse a buffer that should hold exactly one board
+   private static BoardFile readAll(ByteBuffer buffer) throws IOException {
+      BoardFile file = read(buffer);
+      if (buffer.hasRemaining()) {
+         throw new IOException("Board file has " + buffer.remaining() +
+               " bytes after the tiles");
+      }
+      return file;
+   }
+
+   /*
+    * Name: unmap
+    * Purpose: private method to release a mapping right away; without
+    *    UNMAP it is left for the garbage collector. The buffer must not be
+    *    used afterwards
+    * Parameters: buffer (MappedByteBuffer) - mapping to release
+    * Return: void
+    */
+   private static void unmap(MappedByteBuffer buffer) {
+      if (UNMAP == null) {
+         return;
+      }
+      try {
+         UNMAP.invokeExact((ByteBuffer) buffer);
+      }
+      catch (Throwable e) {
+         // the mapping just stays until it is collected
+      }
+   }
+
+   /*
+    * Name: findUnmap
+    * Purpose: private method to look up Unsafe.invokeCleaner; it is not
+    *    a standard API, so it is looked up by name and loading works
+    *    without it
+    * Parameters: none
+    * Return: MethodHandle (invokeCleaner bound to Unsafe, or null)
+    */
+   private static MethodHandle findUnmap() {
+      try {
+         Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+         Field field = unsafeClass.getDeclaredField("theUnsafe");
+         field.setAccessible(true);
+         return MethodHandles.lookup().findVirtual(unsafeClass,
+               "invokeCleaner", MethodType.methodType(void.class,
+                  ByteBuffer.class)).bindTo(field.get(null));
+      }
+      catch (Throwable e) {
+         return null;
+      }
+   }
+
+   /*
+    * Name: read
+    * Purpose: parse a board in the binary format from a buffer, leaving
+    *    the buffer just past the last tile
+    * Parameters: buffer (ByteBuffer) - buffer positioned at the magic
+    *    number
+    * Return: BoardFile (the board in the buffer)
+    */
+   public static BoardFile read(ByteBuffer buffer) throws IOException {
+      if (buffer.remaining() < HEADER_BYTES) {
+         throw new IOException("Board file header is cut off");
+      }
+      if (buffer.getInt() != MAGIC) {
+         throw new IOException("Not a binary board file");
+      }
+      int version = buffer.getInt();
+      if (version != VERSION) {
+         throw new IOException("Unsupported board file version " + version);
+      }
+      int size = buffer.getInt();
+      int score = buffer.getInt();
+      if (size < 2 || score < 0) {
+         throw new IOException("Bad board size " + size + " or score " +
+               score);
+      }
+      if (buffer.remaining() < (long) size * size) {
+         throw new IOException("Board file should hold " + size + "x" +
+               size + " tiles but has only " + buffer.remaining() +
+               " bytes of them");
+      }
+
+      byte[] cells = new byte[size * size];
+      buffer.get(cells);
+      for (byte exponent : cells) {
+         if (exponent < 0 || exponent > MAX_EXPONENT) {
+            throw new IOException(exponent + " is not a valid tile exponent");
+         }
+      }
+      return new BoardFile(size, score, cells);
+   }
+
+   /*
+    * Name: readText
+    * Purpose: private method to load a board in the old text format
+    * Parameters: inputBoard (String) - file to load
+    * Return: BoardFile (the board in the file)
+    */
+   private static BoardFile readText(String inputBoard) throws IOException {
+      Scanner scanner = new Scanner (new File (inputBoard));
+      try {
+         //first line of file is size of board
+         int size = scanner.nextInt();
+
+         //second line of file is the score
+         int score = scanner.nextInt();
+         if (size < 2 || score < 0) {
+            throw new IOException("Bad board size " + size + " or score " +
+                  score);
+         }
+
+         //remaining lines of file are the actual board
+         byte[] cells = new byte[size * size];
+         for (int i = 0; i < cells.length; i++) {
+            cells[i] = toExponent(scanner.nextInt());
+         }
+         return new BoardFile(size, score, cells);
+      }
+      catch (NoSuchElementException e) {
+         throw new IOException("Board file is not in a known format", e);
+      }
+      finally {
+         scanner.close();
+      }
+   }
+
+   /*
+    * Name: write
+    * Purpose: save a board in the binary format
+    * Parameters: outputBoard (String) - file to save to, replaced if it
+    *    exists
+    * Return: void
+    */
+   public void write(String outputBoard) throws IOException {
+      try (FileChannel channel = FileChannel.open(Paths.get(outputBoard),
+               StandardOpenOption.WRITE, StandardOpenOption.CREATE,
+               StandardOpenOption.TRUNCATE_EXISTING)) {
+         this.write(channel);
+      }
+   }
+
+   /*
+    * Name: write
+    * Purpose: write the board in the binary format to an open channel
+    * Parameters: channel (FileChannel) - channel to write to, from its
+    *    current position
+    * Return: void
+    */
+   public void write(FileChannel channel) throws IOException {
+      ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+      header.putInt(MAGIC).putInt(VERSION).putInt(this.size)
+         .putInt(this.score).flip();
+      ByteBuffer[] buffers = { header, ByteBuffer.wrap(this.cells) };
+
+      // a gathering write normally takes everything at once, but is
+      // allowed to stop short
+      while (buffers[1].hasRemaining()) {
+         channel.write(buffers);
+      }
+   }
+
+   /*
+    * Name: toExponent
+    * Purpose: private method to convert a tile value to the exponent it
+    *    is stored as
+    * Parameters: value (int) - 0 or a power of 2 of at least 2
+    * Return: byte (exponent of value, 0 for an empty tile)
+    */
+   private static byte toExponent(int value) throws IOException {
+      if (value == 0) {
+         return 0;
+      }
+      if (value < 2 || (value & (value - 1)) != 0) {
+         throw new IOException(value + " is not a valid tile value");
+      }
+      return (byte) Integer.numberOfTrailingZeros(value);
+   }
+}
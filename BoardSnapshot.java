@@ -0,0 +1,171 @@
+/**
+ * File: BoardSnapshot.java
+ * An immutable board: its tiles, score and possible moves at one point of
+ * a game. Snapshots can be read from any thread without locks, so search
+ * threads, the GUI and the checkpoint writer all work from them instead
+ * of from the Board the game is played on.
+ *
+ * Board.snapshot doesn't copy the tiles; the snapshot shares the board's
+ * array, and the board copies it before its next change in place (see
+ * Board.ensureWritable). A move already writes to a second array, so a
+ * game that takes a snapshot after every move only allocates an array
+ * per move, and never copies one.
+ *
+ **/
+
+import java.util.*;
+import java.io.*;
+import java.nio.channels.*;
+
+/*
+ * Name: BoardSnapshot
+ * Purpose: To hold a board that can't change
+ */
+public final class BoardSnapshot {
+
+   private final int size;
+   private final int score;
+   private final int moveMask;
+   private final long hash;
+
+   // exponent of every tile in row-major order; never written to by
+   // anything once the snapshot exists
+   final byte[] cells;
+
+   /*
+    * Name: BoardSnapshot
+    * Purpose: constructor; only Board and this class make snapshots, and
+    *    they hand over cells that are never changed again
+    * Parameters: size (int) - width of the board;
+    *    score (int) - score of the game;
+    *    moveMask (int) - bit i set if the board can move in
+    *       Direction.values()[i];
+    *    hash (long) - Zobrist hash of the tiles (see Board.zobristHash);
+    *    cells (byte[]) - exponent of every tile in row-major order
+    * Return: constructor has no return type
+    */
+   BoardSnapshot(int size, int score, int moveMask, long hash,
+         byte[] cells) {
+      this.size = size;
+      this.score = score;
+      this.moveMask = moveMask;
+      this.hash = hash;
+      this.cells = cells;
+   }
+
+   // Return the width of the board
+   public int getSize() {
+      return this.size;
+   }
+
+   // Return the score
+   public int getScore() {
+      return this.score;
+   }
+
+   // Return the Zobrist hash of the tiles, the same as the board's
+   public long zobristHash() {
+      return this.hash;
+   }
+
+   // Return the value of the tile at row, col (0 if empty)
+   public int getTile(int row, int col) {
+      int exponent = this.cells[row * this.size + col];
+      return exponent == 0 ? 0 : 1 << exponent;
+   }
+
+   // Return a copy of the grid holding tile values
+   public int[][] getGrid() {
+      int[][] grid = new int[this.size][this.size];
+      for (int row = 0; row < this.size; row++) {
+         for (int col = 0; col < this.size; col++) {
+            grid[row][col] = this.getTile(row, col);
+         }
+      }
+      return grid;
+   }
+
+   // Return true if the board can move in the given direction
+   public boolean canMove(Direction direction) {
+      return (this.moveMask & (1 << direction.ordinal())) != 0;
+   }
+
+   // Return true if the board can't move in any direction
+   public boolean isGameOver() {
+      return this.moveMask == 0;
+   }
+
+   /*
+    * Name: apply
+    * Purpose: move the board, with the same slide as Board.move, without
+    *    adding a random tile
+    * Parameters: direction (Direction) - which direction to move
+    * Return: BoardSnapshot (the moved board, or this snapshot if it
+    *    can't move that way)
+    */
+   public BoardSnapshot apply(Direction direction) {
+      if (!this.canMove(direction)) {
+         return this;
+      }
+      byte[] moved = new byte[this.cells.length];
+      SlideState slide = new SlideState();
+      slide.start(direction, this.size, null);
+      int gained = Board.slideLines(this.size, direction, this.cells, moved,
+            null, null, slide, 0, this.size);
+      if (gained == Board.NO_CHANGE) {
+         return this;
+      }
+      return new BoardSnapshot(this.size, this.score + gained, slide.mask,
+            this.hash ^ slide.hash, moved);
+   }
+
+   /*
+    * Name: write
+    * Purpose: save the board in the binary format described in BoardFile
+    * Parameters: channel (FileChannel) - channel to write to
+    * Return: void
+    */
+   public void write(FileChannel channel) throws IOException {
+      new BoardFile(this.size, this.score, this.cells).write(channel);
+   }
+
+   /*
+    * Name: equals
+    * Purpose: snapshots are equal if they have the same size, tiles and
+    *    score
+    * Parameters: other (Object) - object to compare to
+    * Return: boolean (true if other is an equal snapshot)
+    */
+   @Override
+      public boolean equals(Object other) {
+         if (this == other) {
+            return true;
+         }
+         if (!(other instanceof BoardSnapshot)) {
+            return false;
+         }
+         BoardSnapshot snapshot = (BoardSnapshot) other;
+         return this.hash == snapshot.hash && this.score == snapshot.score &&
+            this.size == snapshot.size &&
+            Arrays.equals(this.cells, snapshot.cells);
+      }
+
+   @Override
+      public int hashCode() {
+         return Long.hashCode(this.hash);
+      }
+
+   @Override
+      public String toString() {
+         StringBuilder outputString = new StringBuilder();
+         outputString.append(String.format("Score: %d\n", this.score));
+         for (int row = 0; row < this.size; row++) {
+            for (int column = 0; column < this.size; column++)
+               outputString.append(this.getTile(row, column) == 0 ?
+                     "    -" : String.format("%5d", this.getTile(row, column)));
+
+            outputString.append("\n");
+         }
+         return outputString.toString();
+      }
+}
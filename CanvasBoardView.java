@@ -0,0 +1,309 @@
+/**
+ * File: CanvasBoardView.java
+ * Draws a board onto a single Canvas, for boards too large to give every
+ * tile its own Rectangle and Text: a 256x256 board would put about
+ * 131,000 nodes in the scene graph, and every layout and CSS pass would
+ * walk them all.
+ *
+ * Each tile value is rendered once into a glyph image at the current zoom,
+ * and tiles are drawn by copying their glyph. Only tiles inside the
+ * viewport are looked at, and only those whose value changed since they
+ * were last drawn are redrawn, so a move costs about as much as the tiles
+ * on screen that it changed. Dragging pans the view; the scroll wheel
+ * zooms it around the mouse, which redraws the whole viewport.
+ *
+ * Changes are only recorded as they happen; the drawing is done by paint,
+ * which the owner calls at most once a frame after being asked to through
+ * the requestPaint callback. So a fast drag or a window resize costs one
+ * redraw per frame, not one per mouse event.
+ *
+ **/
+
+import java.util.*;
+
+import javafx.geometry.*;
+import javafx.scene.*;
+import javafx.scene.canvas.*;
+import javafx.scene.image.*;
+import javafx.scene.paint.*;
+import javafx.scene.text.*;
+
+/*
+ * Name: CanvasBoardView
+ * Purpose: To draw a large board on a canvas, with pan and zoom
+ */
+public class CanvasBoardView {
+
+   // distance between tiles at full size, the same as Gui2048's tile
+   // nodes and their 15 pixel gaps; gaps shrink with the tiles
+   private static final double FULL_PITCH = Gui2048.TILE_WIDTH + 15;
+   private static final double GAP_RATIO = 15 / FULL_PITCH;
+
+   // smallest tiles have a pixel of gap; tiles smaller than
+   // MIN_TEXT_PITCH are drawn without their value
+   private static final double MIN_PITCH = 3;
+   private static final double MIN_TEXT_PITCH = 20;
+
+   // how much one notch of the scroll wheel zooms
+   private static final double ZOOM_STEP = 1.25;
+
+   // exponents up to this have their own glyph; larger ones don't fit an
+   // int tile value anyway (see BoardFile)
+   private static final int MAX_EXPONENT = 31;
+
+   private static final Color COLOR_BACKGROUND = Color.rgb(187, 173, 160);
+
+   private final Canvas canvas = new Canvas();
+   private final int gridSize;
+
+   // distance in pixels from one tile to the next at the current zoom
+   private double pitch;
+
+   // board pixel shown at the canvas's top left corner
+   private double offsetX;
+   private double offsetY;
+
+   // exponent each tile was last drawn with; only meaningful for tiles
+   // in the viewport, and only while redrawAll is false
+   private final byte[] shownExponents;
+   private boolean redrawAll = true;
+
+   // glyph of each exponent at the current zoom, rendered on first use
+   private final Image[] glyphs = new Image[MAX_EXPONENT + 1];
+
+   // the board last drawn, redrawn after a pan or zoom
+   private BoardSnapshot board;
+
+   // where the last mouse press or drag was, for panning
+   private double dragX;
+   private double dragY;
+
+   // true if paint has something to draw; requestPaint asks the owner
+   // to call paint in the next frame
+   private boolean dirty;
+   private final Runnable requestPaint;
+
+   /*
+    * Name: CanvasBoardView
+    * Purpose: constructor
+    * Parameters: gridSize (int) - width of the boards drawn;
+    *    requestPaint (Runnable) - asks for paint to be called next frame
+    * Return: constructor has no return type
+    */
+   public CanvasBoardView(int gridSize, Runnable requestPaint) {
+      this.gridSize = gridSize;
+      this.requestPaint = requestPaint;
+      this.shownExponents = new byte[gridSize * gridSize];
+      this.pitch = FULL_PITCH;
+
+      this.canvas.setOnMousePressed(e -> {
+         this.dragX = e.getX();
+         this.dragY = e.getY();
+      });
+      this.canvas.setOnMouseDragged(e -> {
+         this.pan(this.dragX - e.getX(), this.dragY - e.getY());
+         this.dragX = e.getX();
+         this.dragY = e.getY();
+      });
+      this.canvas.setOnScroll(e -> {
+         if (e.getDeltaY() != 0) {
+            this.zoom(e.getDeltaY() > 0 ? ZOOM_STEP : 1 / ZOOM_STEP,
+                  e.getX(), e.getY());
+         }
+      });
+   }
+
+   // Return the node to put in the scene
+   public Node getNode() {
+      return this.canvas;
+   }
+
+   /*
+    * Name: resize
+    * Purpose: change the size of the viewport; the first resize zooms the
+    *    board to fit it
+    * Parameters: width (double), height (double) - new size in pixels
+    * Return: void
+    */
+   public void resize(double width, double height) {
+      if (width <= 0 || height <= 0 || (width == this.canvas.getWidth() &&
+               height == this.canvas.getHeight())) {
+         return;
+      }
+      boolean first = (this.canvas.getWidth() == 0);
+      this.canvas.setWidth(width);
+      this.canvas.setHeight(height);
+      if (first) {
+         this.setPitch(Math.min(width, height) / this.gridSize);
+      }
+      this.clampOffsets();
+      this.invalidate();
+   }
+
+   /*
+    * Name: refresh
+    * Purpose: set the board to draw; the next paint redraws only the
+    *    tiles in the viewport that changed since the last one
+    * Parameters: board (BoardSnapshot) - board to draw
+    * Return: void
+    */
+   public void refresh(BoardSnapshot board) {
+      this.board = board;
+      this.dirty = true;
+      this.requestPaint.run();
+   }
+
+   // Mark the whole viewport for redrawing in the next paint
+   private void invalidate() {
+      this.redrawAll = true;
+      this.dirty = true;
+      this.requestPaint.run();
+   }
+
+   /*
+    * Name: pan
+    * Purpose: move the viewport over the board
+    * Parameters: dx (double), dy (double) - pixels to move it by
+    * Return: void
+    */
+   public void pan(double dx, double dy) {
+      this.offsetX += dx;
+      this.offsetY += dy;
+      this.clampOffsets();
+      this.invalidate();
+   }
+
+   /*
+    * Name: zoom
+    * Purpose: scale the board, keeping the board pixel under a point of
+    *    the viewport where it is
+    * Parameters: factor (double) - how much larger to draw tiles;
+    *    x (double), y (double) - point of the viewport to zoom around
+    * Return: void
+    */
+   public void zoom(double factor, double x, double y) {
+      double oldPitch = this.pitch;
+      this.setPitch(this.pitch * factor);
+      double scale = this.pitch / oldPitch;
+      this.offsetX = (this.offsetX + x) * scale - x;
+      this.offsetY = (this.offsetY + y) * scale - y;
+      this.clampOffsets();
+      this.invalidate();
+   }
+
+   // Set the tile pitch, within its limits, and drop glyphs of the old one
+   private void setPitch(double pitch) {
+      this.pitch = Math.max(MIN_PITCH, Math.min(FULL_PITCH, pitch));
+      Arrays.fill(this.glyphs, null);
+   }
+
+   /*
+    * Name: clampOffsets
+    * Purpose: private method to keep the board in view: a board smaller
+    *    than the viewport is centred, a larger one can't be panned past
+    *    its edges
+    * Parameters: none
+    * Return: void
+    */
+   private void clampOffsets() {
+      this.offsetX = clampOffset(this.offsetX, this.canvas.getWidth());
+      this.offsetY = clampOffset(this.offsetY, this.canvas.getHeight());
+   }
+
+   // Return offset limited so the board fills or is centred in length
+   private double clampOffset(double offset, double length) {
+      double board = this.gridSize * this.pitch;
+      if (board <= length) {
+         return (board - length) / 2;
+      }
+      return Math.max(0, Math.min(board - length, offset));
+   }
+
+   /*
+    * Name: paint
+    * Purpose: draw what changed since the last paint: the tiles in the
+    *    viewport, all of them after a pan, zoom or resize and otherwise
+    *    only those whose value changed
+    * Parameters: none
+    * Return: void
+    */
+   public void paint() {
+      if (!this.dirty || this.board == null || this.canvas.getWidth() == 0) {
+         return;
+      }
+      this.dirty = false;
+      GraphicsContext gc = this.canvas.getGraphicsContext2D();
+      boolean all = this.redrawAll;
+      if (all) {
+         gc.setFill(COLOR_BACKGROUND);
+         gc.fillRect(0, 0, this.canvas.getWidth(), this.canvas.getHeight());
+         this.redrawAll = false;
+      }
+
+      // cull to the rows and columns that overlap the viewport
+      int n = this.gridSize;
+      int firstRow = Math.max(0, (int) Math.floor(this.offsetY / this.pitch));
+      int firstCol = Math.max(0, (int) Math.floor(this.offsetX / this.pitch));
+      int endRow = Math.min(n, (int) Math.ceil(
+               (this.offsetY + this.canvas.getHeight()) / this.pitch));
+      int endCol = Math.min(n, (int) Math.ceil(
+               (this.offsetX + this.canvas.getWidth()) / this.pitch));
+
+      // tiles are centred in their pitch, with half the gap on each side
+      double inset = this.pitch * GAP_RATIO / 2;
+      for (int row = firstRow; row < endRow; row++) {
+         double y = row * this.pitch - this.offsetY + inset;
+         for (int col = firstCol; col < endCol; col++) {
+            int cell = row * n + col;
+            byte exponent = exponentOf(this.board.getTile(row, col));
+            if (!all && exponent == this.shownExponents[cell]) {
+               continue;
+            }
+            this.shownExponents[cell] = exponent;
+            double x = col * this.pitch - this.offsetX + inset;
+            gc.drawImage(this.getGlyph(exponent), x, y);
+         }
+      }
+   }
+
+   // Return the exponent of a tile value, 0 for an empty tile
+   private static byte exponentOf(int value) {
+      return (byte) (value == 0 ? 0 : Integer.numberOfTrailingZeros(value));
+   }
+
+   /*
+    * Name: getGlyph
+    * Purpose: private method to get the image of a tile at the current
+    *    zoom, rendering it the first time it is needed
+    * Parameters: exponent (byte) - exponent of the tile, 0 if empty
+    * Return: Image (the tile with its value, if it is large enough to
+    *    read)
+    */
+   private Image getGlyph(byte exponent) {
+      int index = Math.min(exponent, MAX_EXPONENT);
+      if (this.glyphs[index] != null) {
+         return this.glyphs[index];
+      }
+      int size = Math.max(1, (int) Math.round(this.pitch * (1 - GAP_RATIO)));
+      int value = (exponent == 0) ? 0 : 1 << index;
+
+      Canvas glyph = new Canvas(size, size);
+      GraphicsContext gc = glyph.getGraphicsContext2D();
+      gc.setFill(Gui2048.getTileColor(value));
+      gc.fillRect(0, 0, size, size);
+      if (value != 0 && this.pitch >= MIN_TEXT_PITCH) {
+         // the same sizes as the tile nodes, scaled to the tile
+         double textSize = Gui2048.getTextSize(value) * size /
+            (double) Gui2048.TILE_WIDTH;
+         gc.setFill(Gui2048.getFontColor(value));
+         gc.setFont(Font.font("Times New Roman", FontWeight.BOLD, textSize));
+         gc.setTextAlign(TextAlignment.CENTER);
+         gc.setTextBaseline(VPos.CENTER);
+         gc.fillText(Integer.toString(value), size / 2.0, size / 2.0);
+      }
+      SnapshotParameters parameters = new SnapshotParameters();
+      parameters.setFill(Color.TRANSPARENT);
+      this.glyphs[index] = glyph.snapshot(parameters, null);
+      return this.glyphs[index];
+   }
+}
@@ -0,0 +1,173 @@
+/**
+ * File: CheckpointWriter.java
+ * Saves boards to a file on a background thread, so the caller never
+ * waits for the disk.
+ *
+ * Each save writes a temporary file next to the target, forces it to disk
+ * and then renames it over the target, so a crash part way through leaves
+ * the previous save intact instead of a half written file; the directory
+ * is forced to disk after the rename too, or a crash could lose the rename
+ * itself and bring back the previous save. The temporary file is created
+ * with the same default permissions as any other new file, not the owner
+ * only ones of Files.createTempFile, since it becomes the save. Saves are
+ * coalesced: if several are requested while one is being written, only
+ * the latest is written after it.
+ *
+ **/
+
+import java.io.*;
+import java.nio.channels.*;
+import java.nio.file.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+/*
+ * Name: CheckpointWriter
+ * Purpose: To write board snapshots to a file atomically in the background
+ */
+public class CheckpointWriter {
+
+   private final Path target;
+   private final ExecutorService executor;
+
+   // newest snapshot not yet picked up by the writer thread, or null
+   private final AtomicReference<BoardSnapshot> pending =
+      new AtomicReference<>();
+
+   // snapshots written so far; only changed by the writer thread
+   private volatile int written;
+
+   /*
+    * Name: CheckpointWriter
+    * Purpose: constructor
+    * Parameters: outputBoard (String) - file the snapshots are saved to
+    * Return: constructor has no return type
+    */
+   public CheckpointWriter(String outputBoard) {
+      this.target = Paths.get(outputBoard).toAbsolutePath();
+      this.executor = Executors.newSingleThreadExecutor(runnable -> {
+         Thread thread = new Thread(runnable, "checkpoint-writer");
+         thread.setDaemon(true);
+         return thread;
+      });
+   }
+
+   /*
+    * Name: save
+    * Purpose: queue a snapshot to be written; returns straight away
+    * Parameters: snapshot (BoardSnapshot) - board to save
+    * Return: void
+    */
+   public void save(BoardSnapshot snapshot) {
+      // only the save that finds nothing pending starts a write; later
+      // ones just replace the snapshot that write will pick up
+      if (this.pending.getAndSet(snapshot) == null) {
+         this.executor.execute(this::writePending);
+      }
+   }
+
+   /*
+    * Name: close
+    * Purpose: finish writing whatever is pending and stop the writer
+    *    thread; blocks, so only call it when the game is shutting down
+    * Parameters: none
+    * Return: void
+    */
+   public void close() {
+      this.executor.shutdown();
+      try {
+         this.executor.awaitTermination(10, TimeUnit.SECONDS);
+      }
+      catch (InterruptedException e) {
+         Thread.currentThread().interrupt();
+      }
+   }
+
+   // Return how many snapshots have been written; fewer than were saved
+   // if saves were coalesced
+   int getWritten() {
+      return this.written;
+   }
+
+   // Write the newest pending snapshot, if it hasn't been written yet
+   private void writePending() {
+      BoardSnapshot snapshot = this.pending.getAndSet(null);
+      if (snapshot == null) {
+         return;
+      }
+      try {
+         this.write(snapshot);
+         this.written++;
+      }
+      catch (IOException e) {
+         System.out.println("Saving board to " + this.target + " failed: " +
+               e.getMessage());
+      }
+   }
+
+   /*
+    * Name: write
+    * Purpose: private method to write a snapshot to a temporary file,
+    *    force it to disk and rename it over the target
+    * Parameters: snapshot (BoardSnapshot) - board to save
+    * Return: void
+    */
+   private void write(BoardSnapshot snapshot) throws IOException {
+      Path directory = this.target.getParent();
+      Path temp = null;
+      try {
+         FileChannel channel = null;
+         while (channel == null) {
+            temp = directory.resolve(this.target.getFileName() + "." +
+                  Long.toHexString(ThreadLocalRandom.current().nextLong()) +
+                  ".tmp");
+            try {
+               channel = FileChannel.open(temp, StandardOpenOption.WRITE,
+                     StandardOpenOption.CREATE_NEW);
+            }
+            catch (FileAlreadyExistsException e) {
+               // pick another name
+            }
+         }
+         try {
+            snapshot.write(channel);
+            channel.force(true);
+         }
+         finally {
+            channel.close();
+         }
+         try {
+            Files.move(temp, this.target, StandardCopyOption.ATOMIC_MOVE,
+                  StandardCopyOption.REPLACE_EXISTING);
+         }
+         catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, this.target,
+                  StandardCopyOption.REPLACE_EXISTING);
+         }
+         forceDirectory(directory);
+      }
+      finally {
+         if (temp != null) {
+            Files.deleteIfExists(temp);
+         }
+      }
+   }
+
+   /*
+    * Name: forceDirectory
+    * Purpose: private method to force a directory's entries, such as a
+    *    rename into it, to disk
+    * Parameters: directory (Path) - directory to force
+    * Return: void
+    */
+   private static void forceDirectory(Path directory) {
+      try (FileChannel channel = FileChannel.open(directory,
+               StandardOpenOption.READ)) {
+         channel.force(true);
+      }
+      catch (IOException e) {
+         // some platforms (Windows) can't open a directory; there the
+         // rename is as durable as the file system makes it
+      }
+   }
+}
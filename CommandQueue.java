@@ -0,0 +1,93 @@
+/**
+ * File: CommandQueue.java
+ * A bounded queue of one byte commands from one producer thread to one
+ * consumer thread, without locks: each side only writes its own index,
+ * and publishes it with a release store the other side reads with an
+ * acquire load, so neither ever waits for the other.
+ *
+ * The queue pushes back on a producer that outruns the consumer: a
+ * repeatable command (a move, say) the same as the newest one still
+ * waiting is dropped, so a held key queues one move at a time instead of
+ * hundreds, and once the queue is full offer refuses commands until the
+ * consumer catches up. Other commands, such as a second undo, are always
+ * queued.
+ *
+ **/
+
+import java.util.concurrent.atomic.*;
+
+/*
+ * Name: CommandQueue
+ * Purpose: To pass commands from one thread to another without locking
+ */
+public class CommandQueue {
+
+   private final byte[] commands;
+   private final int mask;
+
+   // commands below this are dropped when they repeat the newest one
+   private final int coalesceBelow;
+
+   // next command to take, only written by the consumer
+   private final AtomicLong head = new AtomicLong();
+   // next free slot, only written by the producer
+   private final AtomicLong tail = new AtomicLong();
+
+   /*
+    * Name: CommandQueue
+    * Purpose: constructor
+    * Parameters: capacity (int) - most commands waiting at once, rounded
+    *    up to a power of two;
+    *    coalesceBelow (int) - commands below this are repeatable, and
+    *       dropped when they are the same as the newest one waiting
+    * Return: constructor has no return type
+    */
+   public CommandQueue(int capacity, int coalesceBelow) {
+      int size = Integer.highestOneBit(Math.max(1, capacity - 1)) << 1;
+      this.commands = new byte[size];
+      this.mask = size - 1;
+      this.coalesceBelow = coalesceBelow;
+   }
+
+   /*
+    * Name: offer
+    * Purpose: add a command; only called from the producer thread
+    * Parameters: command (byte) - command to add
+    * Return: boolean (true if the command was added or was a repeatable
+    *    one the same as the newest one waiting, false if the queue is
+    *    full)
+    */
+   public boolean offer(byte command) {
+      long tail = this.tail.get();
+      long head = this.head.getAcquire();
+      // the consumer may take the newest command just after this check;
+      // the repeat is then dropped anyway, which a held key never notices
+      if (command >= 0 && command < this.coalesceBelow && tail > head &&
+            this.commands[(int) ((tail - 1) & this.mask)] == command) {
+         return true;
+      }
+      if (tail - head == this.commands.length) {
+         return false;
+      }
+      this.commands[(int) (tail & this.mask)] = command;
+      this.tail.setRelease(tail + 1);
+      return true;
+   }
+
+   /*
+    * Name: poll
+    * Purpose: take the oldest command; only called from the consumer
+    *    thread
+    * Parameters: none
+    * Return: int (the command, or -1 if the queue is empty)
+    */
+   public int poll() {
+      long head = this.head.get();
+      if (head == this.tail.getAcquire()) {
+         return -1;
+      }
+      byte command = this.commands[(int) (head & this.mask)];
+      this.head.setRelease(head + 1);
+      return command;
+   }
+}
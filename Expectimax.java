@@ -0,0 +1,384 @@
+/**
+ * File: Expectimax.java
+ * An AI that picks the best move for a 4x4 board. It searches the game
+ * tree on packed BitBoard longs: at player nodes it takes the best of the
+ * four moves, at chance nodes it averages over every empty tile getting a
+ * 2 or a 4, weighted by TWO_PROBABILITY. Leaves are scored with a
+ * heuristic that likes empty tiles, possible merges and rows/columns that
+ * are sorted, looked up per row in a precomputed table.
+ *
+ * Chance nodes are cached in a fixed size transposition table keyed by
+ * the packed board, so positions reached by different move orders are
+ * only expanded once. Branches whose probability drops below
+ * PROBABILITY_CUTOFF are scored with the heuristic instead of searched.
+ * Entries only count for the search that stored them, so a search gives
+ * the same answer whether the table is reused or cleared before it; the
+ * table is kept between searches only so it needn't be cleared each time.
+ *
+ * A search can be cancelled from another thread through a flag it checks
+ * at every chance node, so it stops within one node of being told to.
+ *
+ **/
+
+import java.util.*;
+import java.util.concurrent.atomic.*;
+
+/*
+ * Name: Expectimax
+ * Purpose: To choose moves for a 4x4 board with expectimax search
+ */
+public class Expectimax {
+
+   // branches less likely than this are not searched any deeper
+   private static final float PROBABILITY_CUTOFF = 0.001f;
+
+   // heuristic weights
+   private static final float LOST_PENALTY = 200000f;
+   private static final float MONOTONICITY_POWER = 4f;
+   private static final float MONOTONICITY_WEIGHT = 47f;
+   private static final float SUM_POWER = 3.5f;
+   private static final float SUM_WEIGHT = 11f;
+   private static final float MERGES_WEIGHT = 700f;
+   private static final float EMPTY_WEIGHT = 270f;
+
+   // heuristic score of each possible 16 bit row
+   private static final float[] ROW_HEURISTIC = new float[65536];
+
+   static {
+      int[] line = new int[4];
+      for (int row = 0; row < 65536; row++) {
+         for (int i = 0; i < 4; i++) {
+            line[i] = (row >>> (4 * i)) & 0xF;
+         }
+         ROW_HEURISTIC[row] = rowHeuristic(line);
+      }
+   }
+
+   private static final Direction[] DIRECTIONS = Direction.values();
+
+   // the flag of searches that can't be cancelled; never set
+   private static final AtomicBoolean NOT_CANCELLED = new AtomicBoolean();
+
+   // transposition table: entry i holds a board, the depth it was searched
+   // to (0 if the entry is empty), its value and the search that stored it
+   private final long[] tableBoards;
+   private final byte[] tableDepths;
+   private final float[] tableValues;
+   private final byte[] tableSearches;
+   private final int tableMask;
+
+   // counts bestMove calls, so entries from older searches are ignored and
+   // replaced; never 0, which marks a cleared table
+   private byte search;
+
+   // chance of a new tile being a 2, and of it being a 4
+   private float twoChance;
+   private float fourChance;
+
+   // set to stop the search in progress
+   private AtomicBoolean cancelled = NOT_CANCELLED;
+
+   /*
+    * Name: Expectimax
+    * Purpose: constructor
+    * Parameters: tableBits (int) - the transposition table holds
+    *    2^tableBits entries, 14 bytes each
+    * Return: constructor has no return type
+    */
+   public Expectimax(int tableBits) {
+      int size = 1 << tableBits;
+      this.tableBoards = new long[size];
+      this.tableDepths = new byte[size];
+      this.tableValues = new float[size];
+      this.tableSearches = new byte[size];
+      this.tableMask = size - 1;
+   }
+
+   /*
+    * Name: bestMove
+    * Purpose: find the best move for a board; a board with a tile too
+    *    large for a BitBoard (see BitBoard.fits) gets greedyMove instead
+    * Parameters: board (Board) - a 4x4 board;
+    *    depth (int) - how many moves ahead to search, at least 1
+    * Return: Direction (the best move, or null if the game is over)
+    */
+   public Direction bestMove(Board board, int depth) {
+      if (!BitBoard.fits(board)) {
+         return greedyMove(board.snapshot());
+      }
+      return bestMove(BitBoard.pack(board), depth, board.TWO_PROBABILITY);
+   }
+
+   /*
+    * Name: greedyMove
+    * Purpose: pick a move of a board without packing it: the one that
+    *    scores the most, then leaves the most empty tiles. Only used for
+    *    boards with a 32768 tile, so rarely that a search isn't worth it
+    * Parameters: board (BoardSnapshot) - board to move
+    * Return: Direction (the move, or null if the game is over)
+    */
+   static Direction greedyMove(BoardSnapshot board) {
+      Direction best = null;
+      long bestValue = -1;
+      int size = board.getSize();
+      for (Direction direction : DIRECTIONS) {
+         if (!board.canMove(direction)) {
+            continue;
+         }
+         BoardSnapshot moved = board.apply(direction);
+         long empty = 0;
+         for (int row = 0; row < size; row++) {
+            for (int col = 0; col < size; col++) {
+               if (moved.getTile(row, col) == 0) {
+                  empty++;
+               }
+            }
+         }
+         // score first, empty tiles to break ties
+         long value = (moved.getScore() - (long) board.getScore()) *
+            (size * size + 1) + empty;
+         if (value > bestValue) {
+            bestValue = value;
+            best = direction;
+         }
+      }
+      return best;
+   }
+
+   /*
+    * Name: bestMove
+    * Purpose: find the best move for a packed board
+    * Parameters: bits (long) - packed 4x4 board;
+    *    depth (int) - how many moves ahead to search, at least 1;
+    *    twoProbability (int) - percent chance a new tile is a 2
+    * Return: Direction (the best move, or null if the game is over)
+    */
+   public Direction bestMove(long bits, int depth, int twoProbability) {
+      return bestMove(bits, depth, twoProbability, NOT_CANCELLED);
+   }
+
+   /*
+    * Name: bestMove
+    * Purpose: find the best move for a packed board, giving up as soon as
+    *    cancelled is set
+    * Parameters: bits (long) - packed 4x4 board;
+    *    depth (int) - how many moves ahead to search, at least 1;
+    *    twoProbability (int) - percent chance a new tile is a 2;
+    *    cancelled (AtomicBoolean) - set by another thread to stop the
+    *       search
+    * Return: Direction (the best move, or null if the game is over or the
+    *    search was cancelled)
+    */
+   public Direction bestMove(long bits, int depth, int twoProbability,
+         AtomicBoolean cancelled) {
+      this.cancelled = cancelled;
+      this.twoChance = twoProbability / 100f;
+      this.fourChance = 1f - this.twoChance;
+      if (++this.search == 0) {
+         // the count wrapped, so entries this old would look current
+         this.clear();
+         this.search = 1;
+      }
+
+      Direction best = null;
+      float bestValue = -1f;
+      for (Direction direction : DIRECTIONS) {
+         long moved = BitBoard.slide(bits, direction);
+         if (moved == bits) {
+            continue;
+         }
+         float value = chance(moved, depth - 1, 1f);
+         if (value > bestValue) {
+            bestValue = value;
+            best = direction;
+         }
+      }
+      // the values of a cancelled search are made up of whatever it had
+      // got to; the entries it stored are ignored by the next search
+      return cancelled.get() ? null : best;
+   }
+
+   /*
+    * Name: clear
+    * Purpose: empty the transposition table
+    * Parameters: none
+    * Return: void
+    */
+   public void clear() {
+      Arrays.fill(this.tableDepths, (byte) 0);
+      Arrays.fill(this.tableSearches, (byte) 0);
+   }
+
+   /*
+    * Name: chance
+    * Purpose: value of a board that is about to get a random tile: the
+    *    average over every empty tile getting a 2 or a 4
+    * Parameters: bits (long) - packed board;
+    *    depth (int) - moves left to search;
+    *    probability (float) - chance of reaching this board
+    * Return: float (expected value of the board)
+    */
+   private float chance(long bits, int depth, float probability) {
+      if (depth <= 0 || probability < PROBABILITY_CUTOFF) {
+         return heuristic(bits);
+      }
+      if (this.cancelled.get()) {
+         return 0f;
+      }
+
+      int slot = this.slot(bits);
+      if (this.tableBoards[slot] == bits && this.tableDepths[slot] >= depth &&
+            this.tableSearches[slot] == this.search) {
+         return this.tableValues[slot];
+      }
+
+      int empty = emptyTiles(bits);
+      float twoProbability = probability * this.twoChance / empty;
+      float fourProbability = probability * this.fourChance / empty;
+      float sum = 0f;
+      for (int shift = 0; shift < 64; shift += 4) {
+         if (((bits >>> shift) & 0xF) == 0) {
+            sum += this.twoChance *
+               max(bits | (1L << shift), depth, twoProbability);
+            sum += this.fourChance *
+               max(bits | (2L << shift), depth, fourProbability);
+         }
+      }
+      float value = sum / empty;
+      this.store(bits, depth, value);
+      return value;
+   }
+
+   /*
+    * Name: store
+    * Purpose: put the value of a chance node in the transposition table;
+    *    replace by depth: whichever entry was searched deeper is kept,
+    *    unless the old entry is left over from an earlier search
+    * Parameters: bits (long) - packed board;
+    *    depth (int) - moves it was searched ahead;
+    *    value (float) - its value
+    * Return: void
+    */
+   void store(long bits, int depth, float value) {
+      int slot = this.slot(bits);
+      if (this.tableDepths[slot] <= depth ||
+            this.tableSearches[slot] != this.search) {
+         this.tableBoards[slot] = bits;
+         this.tableDepths[slot] = (byte) depth;
+         this.tableValues[slot] = value;
+         this.tableSearches[slot] = this.search;
+      }
+   }
+
+   // Return the depth a board is stored at for this search, 0 if it isn't
+   int storedDepth(long bits) {
+      int slot = this.slot(bits);
+      return (this.tableBoards[slot] == bits &&
+            this.tableSearches[slot] == this.search) ?
+         this.tableDepths[slot] : 0;
+   }
+
+   // Return the slot of the transposition table a board goes in
+   private int slot(long bits) {
+      return (int) mix(bits) & this.tableMask;
+   }
+
+   /*
+    * Name: max
+    * Purpose: value of a board where the player moves next: the value of
+    *    the best move, or 0 if there is no move
+    * Parameters: bits (long) - packed board;
+    *    depth (int) - moves left to search;
+    *    probability (float) - chance of reaching this board
+    * Return: float (value of the board)
+    */
+   private float max(long bits, int depth, float probability) {
+      float best = 0f;
+      for (Direction direction : DIRECTIONS) {
+         long moved = BitBoard.slide(bits, direction);
+         if (moved != bits) {
+            best = Math.max(best, chance(moved, depth - 1, probability));
+         }
+      }
+      return best;
+   }
+
+   // Score a board with the row heuristic applied to its rows and columns
+   private static float heuristic(long bits) {
+      long columns = BitBoard.transpose(bits);
+      return ROW_HEURISTIC[(int) bits & 0xFFFF] +
+         ROW_HEURISTIC[(int) (bits >>> 16) & 0xFFFF] +
+         ROW_HEURISTIC[(int) (bits >>> 32) & 0xFFFF] +
+         ROW_HEURISTIC[(int) (bits >>> 48) & 0xFFFF] +
+         ROW_HEURISTIC[(int) columns & 0xFFFF] +
+         ROW_HEURISTIC[(int) (columns >>> 16) & 0xFFFF] +
+         ROW_HEURISTIC[(int) (columns >>> 32) & 0xFFFF] +
+         ROW_HEURISTIC[(int) (columns >>> 48) & 0xFFFF];
+   }
+
+   // Count the empty tiles of a packed board
+   private static int emptyTiles(long bits) {
+      // set the low bit of every nibble that has any bit set, then count
+      long x = bits | (bits >>> 2);
+      x |= x >>> 1;
+      return 16 - Long.bitCount(x & 0x1111111111111111L);
+   }
+
+   // Scatter the bits of a board so nearby boards use different slots
+   private static long mix(long x) {
+      x = (x ^ (x >>> 33)) * 0xFF51AFD7ED558CCDL;
+      x = (x ^ (x >>> 33)) * 0xC4CEB9FE1A85EC53L;
+      return x ^ (x >>> 33);
+   }
+
+   /*
+    * Name: rowHeuristic
+    * Purpose: score one row (or column) of exponents
+    * Parameters: line (int[]) - the 4 exponents of the row
+    * Return: float (higher is better)
+    */
+   private static float rowHeuristic(int[] line) {
+      float sum = 0f;
+      int empty = 0;
+      int merges = 0;
+      int previous = 0;
+      int counter = 0;
+      for (int rank : line) {
+         sum += (float) Math.pow(rank, SUM_POWER);
+         if (rank == 0) {
+            empty++;
+         }
+         else {
+            if (previous == rank) {
+               counter++;
+            }
+            else if (counter > 0) {
+               merges += 1 + counter;
+               counter = 0;
+            }
+            previous = rank;
+         }
+      }
+      if (counter > 0) {
+         merges += 1 + counter;
+      }
+
+      // how far the row is from being sorted one way or the other
+      float monotonicityLeft = 0f;
+      float monotonicityRight = 0f;
+      for (int i = 1; i < 4; i++) {
+         float before = (float) Math.pow(line[i - 1], MONOTONICITY_POWER);
+         float after = (float) Math.pow(line[i], MONOTONICITY_POWER);
+         if (line[i - 1] > line[i]) {
+            monotonicityLeft += before - after;
+         }
+         else {
+            monotonicityRight += after - before;
+         }
+      }
+
+      return LOST_PENALTY + EMPTY_WEIGHT * empty + MERGES_WEIGHT * merges -
+         MONOTONICITY_WEIGHT * Math.min(monotonicityLeft, monotonicityRight) -
+         SUM_WEIGHT * sum;
+   }
+}
@@ -0,0 +1,160 @@
+/**
+ * File: FreeCellIndex.java
+ * Keeps track of the empty tiles of a board so a random empty tile can
+ * be picked without scanning the grid. Tiles are numbered in row-major
+ * order (row * size + col) and stored as bits, one per tile, with a
+ * Fenwick tree over the number of empty tiles in each 64 bit word. That
+ * gives O(log N) updates and O(log N) lookups of the k'th empty tile.
+ *
+ **/
+
+/*
+ * Name: FreeCellIndex
+ * Purpose: To find the k'th empty tile of a board in row-major order
+ */
+public class FreeCellIndex {
+   private final long[] words;
+   // tree[i] = number of empty tiles in words (i - lowbit(i), i] (1-based)
+   private final int[] tree;
+   private int count;
+
+   /*
+    * Name: FreeCellIndex
+    * Purpose: constructor; starts with no empty tiles
+    * Parameters: cells (int) - number of tiles on the board
+    * Return: constructor has no return type
+    */
+   public FreeCellIndex(int cells) {
+      this.words = new long[(cells + 63) / 64];
+      this.tree = new int[this.words.length + 1];
+   }
+
+   // Return the number of empty tiles
+   public int count() {
+      return count;
+   }
+
+   // Return true if cell is empty
+   public boolean isFree(int cell) {
+      return (words[cell >>> 6] & (1L << cell)) != 0;
+   }
+
+   /*
+    * Name: put
+    * Purpose: mark a tile empty or taken without updating the counts;
+    *    used to fill the index in bulk, must be followed by recount
+    * Parameters: cell (int) - tile number; free (boolean) - true if empty
+    * Return: void
+    */
+   public void put(int cell, boolean free) {
+      if (free) {
+         words[cell >>> 6] |= 1L << cell;
+      }
+      else {
+         words[cell >>> 6] &= ~(1L << cell);
+      }
+   }
+
+   // Return the number of 64 tile words the index is stored in
+   public int wordCount() {
+      return words.length;
+   }
+
+   /*
+    * Name: copyFrom
+    * Purpose: make this index a copy of another index of the same size
+    * Parameters: other (FreeCellIndex) - index to copy
+    * Return: void
+    */
+   public void copyFrom(FreeCellIndex other) {
+      System.arraycopy(other.words, 0, words, 0, words.length);
+      System.arraycopy(other.tree, 0, tree, 0, tree.length);
+      count = other.count;
+   }
+
+   /*
+    * Name: putWord
+    * Purpose: mark the 64 tiles of one word empty or taken from the
+    *    exponents of a board without updating the counts; different words
+    *    can be filled from different threads, followed by recount
+    * Parameters: word (int) - which word to fill;
+    *    cells (byte[]) - tile exponents in row-major order, 0 if empty
+    * Return: void
+    */
+   public void putWord(int word, byte[] cells) {
+      int from = word << 6;
+      int to = Math.min(from + 64, cells.length);
+      long bits = 0;
+      for (int cell = from; cell < to; cell++) {
+         if (cells[cell] == 0) {
+            bits |= 1L << cell;
+         }
+      }
+      words[word] = bits;
+   }
+
+   /*
+    * Name: recount
+    * Purpose: rebuild the counts after tiles were marked with put;
+    *    linear in the number of words
+    * Parameters: none
+    * Return: void
+    */
+   public void recount() {
+      count = 0;
+      for (int i = 1; i < tree.length; i++) {
+         tree[i] = Long.bitCount(words[i - 1]);
+         count += tree[i];
+      }
+      // push each partial sum up to its parent
+      for (int i = 1; i < tree.length; i++) {
+         int parent = i + (i & -i);
+         if (parent < tree.length) {
+            tree[parent] += tree[i];
+         }
+      }
+   }
+
+   /*
+    * Name: set
+    * Purpose: mark a tile empty or taken and update the counts
+    * Parameters: cell (int) - tile number; free (boolean) - true if empty
+    * Return: void
+    */
+   public void set(int cell, boolean free) {
+      if (isFree(cell) == free) {
+         return;
+      }
+      put(cell, free);
+      int delta = free ? 1 : -1;
+      count += delta;
+      for (int i = (cell >>> 6) + 1; i < tree.length; i += i & -i) {
+         tree[i] += delta;
+      }
+   }
+
+   /*
+    * Name: select
+    * Purpose: find the k'th empty tile in row-major order
+    * Parameters: k (int) - 0-based rank, less than count()
+    * Return: int (tile number of the k'th empty tile)
+    */
+   public int select(int k) {
+      // walk down the tree to the word holding the k'th empty tile
+      int word = 0;
+      for (int step = Integer.highestOneBit(tree.length); step > 0;
+            step >>>= 1) {
+         int next = word + step;
+         if (next < tree.length && tree[next] <= k) {
+            word = next;
+            k -= tree[next];
+         }
+      }
+      // then drop the k lowest empty tiles of that word
+      long bits = words[word];
+      for (int i = 0; i < k; i++) {
+         bits &= bits - 1;
+      }
+      return (word << 6) + Long.numberOfTrailingZeros(bits);
+   }
+}
@@ -0,0 +1,169 @@
+/**
+ * File: GameJournal.java
+ * Records a game as an append-only journal that Replay can play back.
+ *
+ * A journal starts with a header and the board the game started from,
+ * then holds one byte per operation:
+ *
+ *    int   MAGIC ("2JNL" in ASCII)
+ *    int   format VERSION
+ *    long  state of the game's JournalRandom when the journal started
+ *    ...   the starting board, in the BoardFile binary format
+ *    byte  one per operation: 0-3 for a move in Direction.values()[op]
+ *          followed by its random tile, ROTATE_CLOCKWISE,
+ *          ROTATE_COUNTERCLOCKWISE, UNDO or REDO
+ *
+ * The tiles that appear after each move aren't stored: replaying the
+ * moves with a JournalRandom restored to the recorded state spawns the
+ * same tiles again. So a game of any length costs one board plus a byte
+ * per move, instead of a full board per save.
+ *
+ * Like PrintWriter, the record methods don't throw; the first error is
+ * kept and reported by checkError.
+ *
+ **/
+
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.nio.file.*;
+
+/*
+ * Name: GameJournal
+ * Purpose: To append the operations of a game to a journal file
+ */
+public class GameJournal implements Closeable {
+   public static final int MAGIC = 0x324A4E4C;
+   public static final int VERSION = 1;
+
+   // operation codes after the four directions
+   public static final byte ROTATE_CLOCKWISE = 4;
+   public static final byte ROTATE_COUNTERCLOCKWISE = 5;
+   public static final byte UNDO = 6;
+   public static final byte REDO = 7;
+
+   // magic, version and random state
+   static final int HEADER_BYTES = 16;
+
+   private final FileChannel channel;
+   private final OutputStream operations;
+   private IOException error;
+
+   /*
+    * Name: GameJournal
+    * Purpose: constructor; writes the header and the starting board
+    * Parameters: outputJournal (String) - file to write; it must not exist
+    *    yet, so the journal of an earlier game is never overwritten
+    *    (FileAlreadyExistsException if it does);
+    *    start (Board) - the board the game starts from;
+    *    random (JournalRandom) - the random numbers the board draws from
+    * Return: constructor has no return type
+    */
+   public GameJournal(String outputJournal, Board start, JournalRandom random)
+      throws IOException {
+      this.channel = FileChannel.open(Paths.get(outputJournal),
+            StandardOpenOption.WRITE, StandardOpenOption.CREATE_NEW);
+      try {
+         ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+         header.putInt(MAGIC).putInt(VERSION).putLong(random.getState())
+            .flip();
+         while (header.hasRemaining()) {
+            this.channel.write(header);
+         }
+         start.snapshot().write(this.channel);
+      }
+      catch (IOException e) {
+         this.channel.close();
+         throw e;
+      }
+      this.operations =
+         new BufferedOutputStream(Channels.newOutputStream(this.channel));
+   }
+
+   /*
+    * Name: recordMove
+    * Purpose: record a move that changed the board, and the random tile
+    *    added after it
+    * Parameters: direction (Direction) - the direction moved in
+    * Return: void
+    */
+   public void recordMove(Direction direction) {
+      this.record(direction.ordinal());
+   }
+
+   /*
+    * Name: recordRotate
+    * Purpose: record a rotation of the board
+    * Parameters: rotateClockwise (boolean) - which way it was rotated
+    * Return: void
+    */
+   public void recordRotate(boolean rotateClockwise) {
+      this.record(rotateClockwise ? ROTATE_CLOCKWISE :
+            ROTATE_COUNTERCLOCKWISE);
+   }
+
+   // Record an undo that changed the board
+   public void recordUndo() {
+      this.record(UNDO);
+   }
+
+   // Record a redo that changed the board
+   public void recordRedo() {
+      this.record(REDO);
+   }
+
+   /*
+    * Name: flush
+    * Purpose: write the buffered operations to the file
+    * Parameters: none
+    * Return: void
+    */
+   public void flush() {
+      if (this.error == null) {
+         try {
+            this.operations.flush();
+         }
+         catch (IOException e) {
+            this.error = e;
+         }
+      }
+   }
+
+   /*
+    * Name: checkError
+    * Purpose: check whether recording has failed
+    * Parameters: none
+    * Return: boolean (true if an operation could not be written)
+    */
+   public boolean checkError() {
+      this.flush();
+      return this.error != null;
+   }
+
+   /*
+    * Name: close
+    * Purpose: flush and close the journal
+    * Parameters: none
+    * Return: void
+    */
+   @Override
+      public void close() throws IOException {
+         this.flush();
+         this.channel.close();
+         if (this.error != null) {
+            throw this.error;
+         }
+      }
+
+   // Append one operation, keeping the first error
+   private void record(int operation) {
+      if (this.error == null) {
+         try {
+            this.operations.write(operation);
+         }
+         catch (IOException e) {
+            this.error = e;
+         }
+      }
+   }
+}
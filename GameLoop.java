@@ -0,0 +1,305 @@
+/**
+ * File: GameLoop.java
+ * Plays a game on its own thread, so the GUI thread never runs game logic.
+ *
+ * The loop thread owns the Board, and the journal, saves and hint searches
+ * that go with it; nothing else touches them once the loop has started.
+ * The GUI hands it commands through a CommandQueue, which coalesces
+ * repeated moves, and the loop publishes the board after each change as a
+ * BoardSnapshot frame. Frames never change, so the GUI reads the newest
+ * one whenever it draws, without waiting for the loop or locking it.
+ * A move's frame can come with the move's events (see MoveEvents), for a
+ * GUI that animates the tiles that moved.
+ *
+ **/
+
+import java.io.*;
+import java.util.concurrent.atomic.*;
+import java.util.concurrent.locks.*;
+import java.util.function.*;
+
+/*
+ * Name: GameLoop
+ * Purpose: To apply commands to a board on a thread of its own
+ */
+public class GameLoop implements Closeable {
+
+   // commands: a move is its Direction's ordinal, and rotations, undo and
+   // redo use the journal's codes, so most commands journal as themselves
+   public static final byte ROTATE = GameJournal.ROTATE_CLOCKWISE;
+   public static final byte UNDO = GameJournal.UNDO;
+   public static final byte REDO = GameJournal.REDO;
+   // save now, save only if the board changed, and find a hint
+   public static final byte SAVE = 8;
+   public static final byte AUTOSAVE = 9;
+   public static final byte HINT = 10;
+
+   // commands that can wait at once; more than a player can type ahead
+   private static final int QUEUE_CAPACITY = 16;
+
+   private static final Direction[] DIRECTIONS = Direction.values();
+
+   private final Board board;
+   private final GameJournal journal;
+   private final CheckpointWriter checkpoint;
+   private final HintSearch hintSearch;
+   private final Runnable onFrame;
+   private final BiConsumer<BoardSnapshot, Direction> onHint;
+
+   private final CommandQueue commands =
+      new CommandQueue(QUEUE_CAPACITY, DIRECTIONS.length);
+   private final AtomicReference<BoardSnapshot> frame;
+   private final Thread thread;
+   private volatile boolean running = true;
+
+   // the board records each move here, if events were asked for, and a
+   // copy is published with the frames before and after the move
+   private final MoveEvents moveEvents;
+   private volatile Move lastMove;
+
+   // only touched on the loop thread
+   private boolean unsaved;
+
+   /*
+    * Name: GameLoop
+    * Purpose: constructor; starts the loop thread, which owns the board
+    *    and everything else passed in from then on
+    * Parameters: board (Board) - board to play;
+    *    journal (GameJournal) - records the game, or null;
+    *    checkpoint (CheckpointWriter) - saves the board;
+    *    hintSearch (HintSearch) - finds hints;
+    *    onFrame (Runnable) - called on the loop thread after each new
+    *       frame; it should only arrange for getFrame to be read later;
+    *    onHint (BiConsumer<BoardSnapshot, Direction>) - called on the
+    *       search thread with each hint and the frame it is for;
+    *    recordMoves (boolean) - publish the events of each move, for
+    *       getMoveEvents
+    * Return: constructor has no return type
+    */
+   public GameLoop(Board board, GameJournal journal,
+         CheckpointWriter checkpoint, HintSearch hintSearch,
+         Runnable onFrame, BiConsumer<BoardSnapshot, Direction> onHint,
+         boolean recordMoves) {
+      this.board = board;
+      this.journal = journal;
+      this.checkpoint = checkpoint;
+      this.hintSearch = hintSearch;
+      this.onFrame = onFrame;
+      this.onHint = onHint;
+      this.frame = new AtomicReference<>(board.snapshot());
+      this.moveEvents = recordMoves ? new MoveEvents() : null;
+      board.setMoveEvents(this.moveEvents);
+
+      this.thread = new Thread(this::run, "game-loop");
+      this.thread.setDaemon(true);
+      this.thread.start();
+   }
+
+   // Return the newest frame; safe to call from any thread
+   public BoardSnapshot getFrame() {
+      return this.frame.get();
+   }
+
+   /*
+    * Name: getMoveEvents
+    * Purpose: get the events of the move from one frame to another; safe
+    *    to call from any thread
+    * Parameters: before (BoardSnapshot) - frame before the move;
+    *    after (BoardSnapshot) - frame after it
+    * Return: MoveEvents (the move's events, which never change, or null if
+    *    after isn't the frame of the latest move or doesn't directly
+    *    follow before, or events weren't asked for)
+    */
+   public MoveEvents getMoveEvents(BoardSnapshot before,
+         BoardSnapshot after) {
+      Move move = this.lastMove;
+      if (move == null || move.before != before || move.after != after) {
+         return null;
+      }
+      return move.events;
+   }
+
+   /*
+    * Name: submit
+    * Purpose: queue a command for the loop; returns straight away. Only
+    *    one thread may submit commands
+    * Parameters: command (byte) - a move's Direction ordinal, or one of
+    *    the command constants
+    * Return: boolean (false if the queue was full and the command was
+    *    dropped)
+    */
+   public boolean submit(byte command) {
+      if (!this.commands.offer(command)) {
+         return false;
+      }
+      LockSupport.unpark(this.thread);
+      return true;
+   }
+
+   // Queue a move in a direction
+   public boolean submitMove(Direction direction) {
+      return this.submit((byte) direction.ordinal());
+   }
+
+   /*
+    * Name: close
+    * Purpose: stop the loop once the commands already queued are done;
+    *    it saves the board and closes the journal on the way out. Blocks
+    *    until then
+    * Parameters: none
+    * Return: void
+    */
+   @Override
+      public void close() {
+         this.running = false;
+         LockSupport.unpark(this.thread);
+         try {
+            this.thread.join();
+         }
+         catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+         }
+      }
+
+   /*
+    * Name: run
+    * Purpose: private method run by the loop thread: apply commands as
+    *    they come, and sleep while there are none. A command that fails
+    *    is reported and skipped, so one bug doesn't stop the game
+    * Parameters: none
+    * Return: void
+    */
+   private void run() {
+      while (true) {
+         int command = this.commands.poll();
+         if (command >= 0) {
+            try {
+               this.apply(command);
+            }
+            catch (RuntimeException e) {
+               System.out.println("Command " + command + " failed: " + e);
+            }
+         }
+         else if (this.running) {
+            // submit and close unpark this thread, so nothing is missed
+            // between finding the queue empty and parking
+            LockSupport.park(this);
+         }
+         else {
+            break;
+         }
+      }
+      this.save(false);
+      if (this.journal != null) {
+         try {
+            this.journal.close();
+         }
+         catch (IOException e) {
+            System.out.println("Writing the journal failed: " +
+                  e.getMessage());
+         }
+      }
+   }
+
+   /*
+    * Name: apply
+    * Purpose: private method to carry out one command on the board,
+    *    journal it and publish a new frame if the board changed
+    * Parameters: command (int) - the command
+    * Return: void
+    */
+   private void apply(int command) {
+      boolean changed = false;
+      boolean moved = false;
+      if (command < DIRECTIONS.length) {
+         Direction direction = DIRECTIONS[command];
+         if (this.board.move(direction)) {
+            this.board.addRandomTile();
+            if (this.journal != null) {
+               this.journal.recordMove(direction);
+            }
+            moved = true;
+            changed = true;
+         }
+      }
+      else if (command == ROTATE) {
+         this.board.rotate(true);
+         if (this.journal != null) {
+            this.journal.recordRotate(true);
+         }
+         changed = true;
+      }
+      else if (command == UNDO && this.board.canUndo()) {
+         this.board.undo();
+         if (this.journal != null) {
+            this.journal.recordUndo();
+         }
+         changed = true;
+      }
+      else if (command == REDO && this.board.canRedo()) {
+         this.board.redo();
+         if (this.journal != null) {
+            this.journal.recordRedo();
+         }
+         changed = true;
+      }
+      else if (command == SAVE || command == AUTOSAVE) {
+         this.save(command == SAVE);
+      }
+      else if (command == HINT) {
+         BoardSnapshot hinted = this.frame.get();
+         this.hintSearch.start(this.board,
+               direction -> this.onHint.accept(hinted, direction));
+      }
+
+      if (changed) {
+         // a hint for the old board is no use any more
+         this.hintSearch.cancel();
+         this.unsaved = true;
+         BoardSnapshot after = this.board.snapshot();
+         if (moved && this.moveEvents != null) {
+            // published before the frame, so whoever is told about the
+            // frame can find its events
+            this.lastMove = new Move(this.frame.get(), after,
+                  this.moveEvents.copy());
+         }
+         this.frame.set(after);
+         this.onFrame.run();
+      }
+   }
+
+   /*
+    * Name: save
+    * Purpose: private method to flush the journal and hand the board to
+    *    the checkpoint writer
+    * Parameters: always (boolean) - save even if the board hasn't
+    *    changed since the last save
+    * Return: void
+    */
+   private void save(boolean always) {
+      //the journal is small and appended to, so flushing it is cheap
+      if (this.journal != null) {
+         this.journal.flush();
+      }
+      if (always || this.unsaved) {
+         this.unsaved = false;
+         this.checkpoint.save(this.frame.get());
+      }
+   }
+
+   /*
+    * Name: Move
+    * Purpose: a move's events, with the frames before and after it
+    */
+   private static class Move {
+      private final BoardSnapshot before;
+      private final BoardSnapshot after;
+      private final MoveEvents events;
+
+      Move(BoardSnapshot before, BoardSnapshot after, MoveEvents events) {
+         this.before = before;
+         this.after = after;
+         this.events = events;
+      }
+   }
+}
@@ -12,10 +12,10 @@
  * 
  **/
 
+import javafx.animation.*;
 import javafx.application.*;
 import javafx.beans.value.ChangeListener;
 import javafx.beans.value.ObservableValue;
-import javafx.collections.ObservableList;
 import javafx.scene.control.*;
 import javafx.scene.*;
 import javafx.scene.paint.*;
@@ -26,10 +26,13 @@ import javafx.event.*;
 import javafx.scene.input.*;
 import javafx.scene.text.*;
 import javafx.geometry.*;
+import javafx.util.Duration;
 import java.util.*;
+import java.util.concurrent.atomic.*;
 
 
 import java.io.*;
+import java.nio.file.FileAlreadyExistsException;
 
 /*
  * Name: Gui2048
@@ -38,9 +41,31 @@ import java.io.*;
 public class Gui2048 extends Application {
 
    private String outputBoard; // The filename for where to save the Board
-   private Board board; // The 2048 Game Board
+   private String outputJournal; // The filename for where to journal the game
+   private Board board; // The 2048 Game Board, owned by gameLoop once started
+   private JournalRandom random; // Where the Board's random tiles come from
+   private GameLoop gameLoop; // Plays the game off the FX thread
 
-   private static final int TILE_WIDTH = 106;
+   static final int TILE_WIDTH = 106; // Also sizes CanvasBoardView's tiles
+
+   // Boards wider than this are drawn on a canvas instead of with a node
+   // per tile, and start in a window CANVAS_WINDOW_TILES tiles wide
+   private static final int CANVAS_THRESHOLD = 32;
+   private static final int CANVAS_WINDOW_TILES = 6;
+
+   // Height of the header row above the canvas, with its gap and padding
+   private static final int CANVAS_HEADER_HEIGHT = 90;
+
+   // How long a hint search may run, in milliseconds
+   private static final long HINT_BUDGET = 2000;
+
+   // How often the board is saved in the background, in seconds
+   private static final int AUTOSAVE_SECONDS = 30;
+
+   // How long tiles take to slide, then to pop in where they merged or
+   // were added
+   private static final Duration SLIDE_DURATION = Duration.millis(100);
+   private static final Duration POP_DURATION = Duration.millis(100);
 
    private static final int TEXT_SIZE_LOW = 55; // Low value tiles (2,4,8,etc)
    private static final int TEXT_SIZE_MID = 45; // Mid value tiles 
@@ -74,6 +99,54 @@ public class Gui2048 extends Application {
    private GridPane pane;
    private StackPane stackpane;
    private int gridSize;
+   private HintSearch hintSearch; // Finds hints in the background
+   private Text hintText; // Shows the latest hint
+   private CheckpointWriter checkpoint; // Saves the board in the background
+
+   // The frame of the game loop last drawn, and whether a refresh for a
+   // newer one has been posted to the FX thread and not yet run
+   private BoardSnapshot shownFrame;
+   private final AtomicBoolean framePosted = new AtomicBoolean();
+   private boolean gameOverShown;
+
+   // Tiles and their values, by row and column, so refreshing the board
+   // doesn't have to look them up among the pane's children
+   private Rectangle[][] tiles;
+   private Text[][] texts;
+   private Text scoreText;
+
+   // What the tiles and score last showed; only tiles whose value differs
+   // from this are redrawn. -1 until a tile is first drawn
+   private int[][] shownValues;
+   private int shownScore = -1;
+
+   // Size the tiles were last given, so resizing skips unchanged sizes
+   private int shownTileWidth = -1;
+   private int shownTileHeight = -1;
+
+   // Fonts for tile values, made once instead of on every refresh
+   private Font fontLow;
+   private Font fontMid;
+   private Font fontHigh;
+
+   // Draws the board instead of the tiles above CANVAS_THRESHOLD, else null
+   private CanvasBoardView canvasView;
+
+   // The slide or pop running for the latest move, the frame it ends at
+   // and the move's events, and the nodes it moves or scales, put back
+   // when it ends or is cut short by the next frame
+   private Animation tileAnimation;
+   private BoardSnapshot animatedFrame;
+   private MoveEvents animatedEvents;
+   private final List<Node> animatedNodes = new ArrayList<>();
+
+   // Set when the window was resized or the board changed since the last
+   // frame; repaintTimer handles both at most once a frame, however many
+   // resize events or key presses came in between, then stops until the
+   // next request
+   private boolean resizePending;
+   private boolean refreshPending;
+   private AnimationTimer repaintTimer;
 
 
    /*
@@ -90,6 +163,45 @@ public class Gui2048 extends Application {
          // Process Arguments and Initialize the Game Board
          processArgs(getParameters().getRaw().toArray(new String[0]));
 
+         //record the game so it can be replayed, if asked to; a journal
+         //left by an earlier game is never overwritten
+         GameJournal journal = null;
+         if (outputJournal != null) {
+            try {
+               journal = new GameJournal(outputJournal, board, random);
+            }
+            catch (FileAlreadyExistsException e) {
+               System.out.println("Journal " + outputJournal + " already " +
+                     "exists; this game won't be journaled");
+            }
+            catch (IOException e) {
+               System.out.println("Could not start the journal " +
+                     outputJournal + ": " + e.getMessage());
+            }
+         }
+
+         repaintTimer = new AnimationTimer() {
+            @Override
+               public void handle(long now) {
+                  repaint();
+               }
+         };
+
+         //from here on the board belongs to the game loop's thread
+         checkpoint = new CheckpointWriter(outputBoard);
+         hintSearch = new HintSearch(HINT_BUDGET);
+         //tile nodes are animated from the events of each move
+         gameLoop = new GameLoop(board, journal, checkpoint, hintSearch,
+               this::frameReady, this::hintReady,
+               board.GRID_SIZE <= CANVAS_THRESHOLD);
+
+         //save the board every AUTOSAVE_SECONDS if it has changed
+         Timeline autosave = new Timeline(new KeyFrame(
+                  Duration.seconds(AUTOSAVE_SECONDS),
+                  e -> gameLoop.submit(GameLoop.AUTOSAVE)));
+         autosave.setCycleCount(Animation.INDEFINITE);
+         autosave.play();
+
          // Create the pane that will hold all of the visual objects
          pane = new GridPane();
          pane.setAlignment(Pos.CENTER);
@@ -102,11 +214,25 @@ public class Gui2048 extends Application {
          //create stackpane to layer objects
          stackpane = new StackPane();
          stackpane.getChildren().add(pane);
-         this.gridSize = board.getGrid().length;
 
-         int initialBoardWidth = gridSize * (TILE_WIDTH + 15);
-         int initialBoardHeight = TILE_WIDTH * (gridSize + 1) 
-            + 15 * (gridSize + 2);
+         //hint arrow drawn over the board, filled in by the hint search
+         hintText = new Text();
+         hintText.setFont(Font.font("Times New Roman", FontWeight.BOLD, 200));
+         hintText.setFill(COLOR_VALUE_DARK);
+         hintText.setOpacity(0.6);
+         hintText.setMouseTransparent(true);
+         stackpane.getChildren().add(hintText);
+
+         this.gridSize = gameLoop.getFrame().getSize();
+         if (gridSize > CANVAS_THRESHOLD) {
+            canvasView = new CanvasBoardView(gridSize, repaintTimer::start);
+         }
+
+         //a canvas shows part of the board, so its window starts smaller
+         int shownTiles = (canvasView != null) ? CANVAS_WINDOW_TILES : gridSize;
+         int initialBoardWidth = shownTiles * (TILE_WIDTH + 15);
+         int initialBoardHeight = TILE_WIDTH * (shownTiles + 1) 
+            + 15 * (shownTiles + 2);
 
          Scene scene = new Scene(stackpane, initialBoardWidth, initialBoardHeight);
          primaryStage.setTitle("Gui2048");
@@ -119,14 +245,14 @@ public class Gui2048 extends Application {
          scene.widthProperty().addListener(new ChangeListener<Number>() {
                @Override public void changed(ObservableValue<? extends Number> 
                   observableValue, Number oldValue, Number newValue) {
-               refreshDisplay();
+               requestResize();
                }
                });
 
          scene.heightProperty().addListener(new ChangeListener<Number>() {
                @Override public void changed(ObservableValue<? extends Number> 
                   observableValue, Number oldValue, Number newValue) {
-               refreshDisplay();
+               requestResize();
                }
                });
 
@@ -134,16 +260,33 @@ public class Gui2048 extends Application {
          Text header = new Text();
          header.setText("2048");
 
-         Text score = new Text();
+         scoreText = new Text();
          header.setFont(Font.font("Times New Roman", FontWeight.BOLD, 40));
-         score.setFont(Font.font("Times New Roman", FontWeight.BOLD, 30));
-         score.setText("Score: "+board.getScore());
+         scoreText.setFont(Font.font("Times New Roman", FontWeight.BOLD, 30));
 
          //add header text to top of pane
          pane.add(header, 0, 0, 2, 1);
          //add score to top of pane
-         pane.add(score, gridSize-2, 0, 2, 1);
+         pane.add(scoreText, (canvasView != null) ? 2 : gridSize-2, 0, 2, 1);
+
+         fontLow = Font.font("Times New Roman", FontWeight.BOLD, 
+               TEXT_SIZE_LOW);
+         fontMid = Font.font("Times New Roman", FontWeight.BOLD, 
+               TEXT_SIZE_MID);
+         fontHigh = Font.font("Times New Roman", FontWeight.BOLD, 
+               TEXT_SIZE_HIGH);
+
+         //large boards get a single canvas below the header instead
+         if (canvasView != null) {
+            pane.add(canvasView.getNode(), 0, 1, 4, 1);
+            this.requestResize();
+            this.requestRefresh();
+            return;
+         }
 
+         tiles = new Rectangle[gridSize][gridSize];
+         texts = new Text[gridSize][gridSize];
+         shownValues = new int[gridSize][gridSize];
          for (int i = 0; i < gridSize; i++) {
             for (int j = 0; j < gridSize; j++) {
 
@@ -154,75 +297,377 @@ public class Gui2048 extends Application {
                pane.add(text, j, i+1);
 
                GridPane.setHalignment(text, HPos.CENTER);
+               tiles[i][j] = tile;
+               texts[i][j] = text;
+               shownValues[i][j] = -1;
             }
          }
-         this.refreshDisplay();
+         this.requestResize();
+         this.requestRefresh();
       }
 
 
+   // Ask for the tiles to be fitted to the window in the next frame
+   private void requestResize() {
+      resizePending = true;
+      repaintTimer.start();
+   }
+
+   // Ask for the board to be redrawn in the next frame
+   private void requestRefresh() {
+      refreshPending = true;
+      repaintTimer.start();
+   }
+
+   /*
+    * Name: repaint
+    * Purpose: called by repaintTimer once a frame while it runs, to do
+    *    the resizing and redrawing requested since the last frame
+    * Parameters: none
+    * Return: void
+    */
+   private void repaint() {
+      //nothing more to do until the next request starts the timer again
+      repaintTimer.stop();
+      if (resizePending) {
+         resizePending = false;
+         resizeTiles();
+      }
+      if (refreshPending) {
+         refreshPending = false;
+         refreshDisplay();
+      }
+      if (canvasView != null) {
+         canvasView.paint();
+      }
+   }
+
    /*
     * Name: refreshDisplay
-    * Purpose: to 'refresh' the tiles of the board after every move
+    * Purpose: to 'refresh' the tiles of the board after every move;
+    *    only tiles whose value changed since they were last drawn are
+    *    touched, and sizes are left to resizeTiles. Large boards are
+    *    drawn by canvasView instead of tile nodes. Draws the newest frame
+    *    of the game loop, so it never waits for the game; a frame that
+    *    is one move on from the last is animated instead
     * Parameters: none
     * Return: void
     */
    public void refreshDisplay() {
+      BoardSnapshot frame = gameLoop.getFrame();
+      if (frame == shownFrame) {
+         return;
+      }
+      MoveEvents events = gameLoop.getMoveEvents(shownFrame, frame);
+      shownFrame = frame;
+      //a hint is only good for the frame it was found for
+      hintText.setText("");
+
+      if (canvasView != null) {
+         canvasView.refresh(frame);
+      }
+      else if (events != null && events.isComplete()) {
+         animateTiles(frame, events);
+      }
+      else {
+         //skipped frames, undo and rotate have nothing to animate
+         finishAnimation();
+         refreshTiles(frame);
+      }
+
+      //to update the score
+      if (frame.getScore() != shownScore) {
+         shownScore = frame.getScore();
+         scoreText.setText("Score: "+shownScore);
+      }
+
+      //if the game is over, show overlay screen
+      if (frame.isGameOver() && !gameOverShown) {
+         gameOverShown = true;
+         showGameOver();
+      }
+   }
+
+   /*
+    * Name: frameReady
+    * Purpose: called on the game loop's thread after each new frame;
+    *    posts a refresh to the FX thread, only one however many frames
+    *    arrive before it runs
+    * Parameters: none
+    * Return: void
+    */
+   private void frameReady() {
+      if (!framePosted.getAndSet(true)) {
+         Platform.runLater(() -> {
+            framePosted.set(false);
+            requestRefresh();
+         });
+      }
+   }
+
+   /*
+    * Name: showGameOver
+    * Purpose: cover the board with the game over screen
+    * Parameters: none
+    * Return: void
+    */
+   private void showGameOver() {
+      System.out.println("Game Over!");
+      Rectangle endRect = new Rectangle();
+      endRect.setWidth(pane.getWidth());
+      endRect.setHeight(pane.getHeight());
+      endRect.setFill(COLOR_GAME_OVER);
+
+      Text endText = new Text();
+      endText.setText("Game Over!");
+      endText.setFont(Font.font("Times New Roman", FontWeight.BOLD, 60));
+      stackpane.getChildren().addAll(endRect, endText);
+   }
+
+   /*
+    * Name: refreshTiles
+    * Purpose: redraw the tile nodes whose value changed since they were
+    *    last drawn
+    * Parameters: frame (BoardSnapshot) - board to draw
+    * Return: void
+    */
+   private void refreshTiles(BoardSnapshot frame) {
+      for (int row = 0; row < gridSize; row++) {
+         for (int col = 0; col < gridSize; col++) {
+            refreshTile(frame, row, col);
+         }
+      }
+   }
+
+   /*
+    * Name: refreshTile
+    * Purpose: redraw one tile's nodes if its value changed since they
+    *    were last drawn
+    * Parameters: frame (BoardSnapshot) - board to draw;
+    *    row (int), col (int) - tile to draw
+    * Return: void
+    */
+   private void refreshTile(BoardSnapshot frame, int row, int col) {
+      int value = frame.getTile(row, col);
+      if (value == shownValues[row][col]) {
+         return;
+      }
+      shownValues[row][col] = value;
+      tiles[row][col].setFill(getTileColor(value));
+
+      Text text = texts[row][col];
+      //if value in tile = 0, have blank square
+      if (value == 0) {
+         text.setText("");
+         return;
+      }
+      text.setText(Integer.toString(value));
+      text.setFill(getFontColor(value));
+      text.setFont(this.getFont(value));
+   }
 
+   /*
+    * Name: animateTiles
+    * Purpose: slide the tiles a move moved to where they end up, then
+    *    redraw the tiles it changed and pop in the ones that merged or
+    *    were added; tiles the move didn't touch aren't looked at
+    * Parameters: frame (BoardSnapshot) - board after the move;
+    *    events (MoveEvents) - what the move did, from the last frame
+    *       drawn to frame
+    * Return: void
+    */
+   private void animateTiles(BoardSnapshot frame, MoveEvents events) {
+      //the last move's animation has to be done before this one starts
+      finishAnimation();
+      animatedFrame = frame;
+      animatedEvents = events;
+
+      //tiles are a tile and a 15 pixel gap apart
+      double pitchX = shownTileWidth + 15;
+      double pitchY = shownTileHeight + 15;
+      ParallelTransition slides = new ParallelTransition();
+      for (int i = 0; i < events.size(); i++) {
+         if (events.getKind(i) == MoveEvents.SPAWN) {
+            continue;
+         }
+         int from = events.getFrom(i);
+         int to = events.getTo(i);
+         int row = from / gridSize;
+         int col = from % gridSize;
+         double dx = (to % gridSize - col) * pitchX;
+         double dy = (to / gridSize - row) * pitchY;
+         //drawn over the tiles they pass, text over its own tile
+         slideNode(tiles[row][col], dx, dy, slides);
+         slideNode(texts[row][col], dx, dy, slides);
+      }
+      tileAnimation = slides;
+      slides.setOnFinished(e -> popTiles());
+      slides.play();
+   }
+
+   // Add a transition sliding node by dx, dy to slides
+   private void slideNode(Node node, double dx, double dy,
+         ParallelTransition slides) {
+      node.toFront();
+      animatedNodes.add(node);
+      TranslateTransition slide = new TranslateTransition(SLIDE_DURATION,
+            node);
+      slide.setToX(dx);
+      slide.setToY(dy);
+      slides.getChildren().add(slide);
+   }
+
+   /*
+    * Name: popTiles
+    * Purpose: once the slides are done, put the slid nodes back and
+    *    redraw the tiles the move changed, then pop in the tiles that
+    *    merged or were added
+    * Parameters: none
+    * Return: void
+    */
+   private void popTiles() {
+      resetAnimatedNodes();
+      refreshMovedTiles();
+      MoveEvents events = animatedEvents;
+      ParallelTransition pops = new ParallelTransition();
+      for (int i = 0; i < events.size(); i++) {
+         if (events.getKind(i) == MoveEvents.SLIDE) {
+            continue;
+         }
+         int to = events.getTo(i);
+         popNode(tiles[to / gridSize][to % gridSize], pops);
+         popNode(texts[to / gridSize][to % gridSize], pops);
+      }
+      tileAnimation = pops;
+      pops.setOnFinished(e -> finishAnimation());
+      pops.play();
+   }
+
+   // Add a transition growing node to its full size to pops
+   private void popNode(Node node, ParallelTransition pops) {
+      animatedNodes.add(node);
+      ScaleTransition pop = new ScaleTransition(POP_DURATION, node);
+      pop.setFromX(0.5);
+      pop.setFromY(0.5);
+      pop.setToX(1);
+      pop.setToY(1);
+      pops.getChildren().add(pop);
+   }
+
+   /*
+    * Name: finishAnimation
+    * Purpose: end the running animation, if any, and show the frame it
+    *    was animating as it is when the animation ends
+    * Parameters: none
+    * Return: void
+    */
+   private void finishAnimation() {
+      if (tileAnimation == null) {
+         return;
+      }
+      tileAnimation.stop();
+      tileAnimation = null;
+      resetAnimatedNodes();
+      refreshMovedTiles();
+   }
+
+   // Redraw the tiles the animated move left or moved to; no others changed
+   private void refreshMovedTiles() {
+      for (int i = 0; i < animatedEvents.size(); i++) {
+         int from = animatedEvents.getFrom(i);
+         int to = animatedEvents.getTo(i);
+         refreshTile(animatedFrame, from / gridSize, from % gridSize);
+         refreshTile(animatedFrame, to / gridSize, to % gridSize);
+      }
+   }
+
+   // Put every node the animation moved or scaled back in its place
+   private void resetAnimatedNodes() {
+      for (Node node : animatedNodes) {
+         node.setTranslateX(0);
+         node.setTranslateY(0);
+         node.setScaleX(1);
+         node.setScaleY(1);
+      }
+      animatedNodes.clear();
+   }
+
+   /*
+    * Name: resizeTiles
+    * Purpose: fit the tiles to the window after it is resized; the
+    *    values on them are left alone
+    * Parameters: none
+    * Return: void
+    */
+   private void resizeTiles() {
       int boardWidth = (int) pane.getScene().getWidth();
       int boardHeight = (int) pane.getScene().getHeight();
 
+      if (canvasView != null) {
+         canvasView.resize(boardWidth - 30, 
+               boardHeight - CANVAS_HEADER_HEIGHT);
+         return;
+      }
+
       int tileWidth = ((boardWidth - 15*gridSize)/gridSize);
       int tileHeight = ((boardHeight - 15*(gridSize+2))/(gridSize+1));
+      if (tileWidth == shownTileWidth && tileHeight == shownTileHeight) {
+         return;
+      }
+      shownTileWidth = tileWidth;
+      shownTileHeight = tileHeight;
 
-      ObservableList<Node> children = pane.getChildren();
-      //get objects in pane
-      for (Node node: children) {
-         int textSize = TEXT_SIZE_LOW;
-         int row = GridPane.getRowIndex(node);
-         int col = GridPane.getColumnIndex(node);
-         if (row!= 0) {
-            int value = this.board.getGrid()[row-1][col];
-            //check if text object
-            if (node instanceof Text) { 
-               if (value != 0) {
-                  ((Text) node).setText(""+value);
-                  ((Text) node).setFill(this.getFontColor(value));
-                  //if over 3 digits, use high text size
-                  if (value > 999) {
-                     textSize = TEXT_SIZE_HIGH;
-                  }
-                  //if over 2 digits (but not over 3), use mid text size
-                  else if (value > 99) {
-                     textSize = TEXT_SIZE_MID;
-                  }
-               }
-               //if value in tile = 0, have blank square
-               else { 
-                  ((Text) node).setText("");
-               }
-               ((Text) node).setFont(Font.font("Times New Roman", 
-                     FontWeight.BOLD, textSize));
-            }
-            else { //if rectangle object
-               ((Rectangle) node).setFill(this.getTileColor(value));
-               ((Rectangle) node).setWidth(tileWidth);
-               ((Rectangle) node).setHeight(tileHeight);
-            }
-         }
-         else if (col == gridSize - 2) { 
-            //to update the score
-            ((Text) node).setText("Score: "+board.getScore());
+      for (Rectangle[] row : tiles) {
+         for (Rectangle tile : row) {
+            tile.setWidth(tileWidth);
+            tile.setHeight(tileHeight);
          }
       }
    }
 
+   /*
+    * Name: getFont
+    * Purpose: get the font for a tile value, smaller for longer values
+    * Parameters: val (int) - value at the specified tile
+    * Return: Font (one of the fonts made in start, never a new one)
+    */
+   private Font getFont(int val) {
+      switch (getTextSize(val)) {
+         case TEXT_SIZE_HIGH:
+            return fontHigh;
+         case TEXT_SIZE_MID:
+            return fontMid;
+         default:
+            return fontLow;
+      }
+   }
+
+   /*
+    * Name: getTextSize
+    * Purpose: get the text size for a tile value, smaller for longer
+    *    values; also used by CanvasBoardView
+    * Parameters: val (int) - value at the specified tile
+    * Return: int (one of the TEXT_SIZE constants)
+    */
+   static int getTextSize(int val) {
+      //if over 3 digits, use high text size
+      if (val > 999) {
+         return TEXT_SIZE_HIGH;
+      }
+      //if over 2 digits (but not over 3), use mid text size
+      else if (val > 99) {
+         return TEXT_SIZE_MID;
+      }
+      return TEXT_SIZE_LOW;
+   }
+
    /*
     * Name: getFontColor
     * Purpose: get the appropriate font color based on the value in the tile
     * Parameters: val (int) - value at the specified tile
     * Return: Color (dark if 2 or 4, light otherwise)
     */
-   private Color getFontColor(int val) {
+   static Color getFontColor(int val) {
       //if 2 or 4, color is dark
       if (val == 2 || val == 4) {
          return COLOR_VALUE_DARK;
@@ -238,7 +683,7 @@ public class Gui2048 extends Application {
     * Parameters: val (int) - value at the specified tile
     * Return: Color (different color for different int values)
     */
-   private Color getTileColor(int val) {
+   static Color getTileColor(int val) {
       //set tiles based on stored value
       switch(val) {
          case 0:
@@ -295,66 +740,100 @@ public class Gui2048 extends Application {
           * Return: void
           */
          public void handle(KeyEvent e){
-            if (board.isGameOver()) {
+            //the game loop ignores moves once the game is over, but undo
+            //and the rest are shut off here, as before
+            if (gameLoop.getFrame().isGameOver()) {
                return;
             }
-            Direction d = null;
 
             /* KeyEvent Processing Code Goes Here */
-            //set direction
+            //commands are queued for the game loop, which applies them on
+            //its own thread; a held key only ever has one move waiting
             switch(e.getCode()) {
                case UP: 
-                  d = Direction.UP;
+                  gameLoop.submitMove(Direction.UP);
                   break;
                case DOWN:
-                  d = Direction.DOWN;
+                  gameLoop.submitMove(Direction.DOWN);
                   break;
                case RIGHT:
-                  d = Direction.RIGHT;
+                  gameLoop.submitMove(Direction.RIGHT);
                   break;
                case LEFT:
-                  d = Direction.LEFT;
+                  gameLoop.submitMove(Direction.LEFT);
                   break;
                case S: //save
-                  d = null;
                   System.out.println("Saving board to "+outputBoard);
-                  try {
-                     board.saveBoard(outputBoard);
-                  } catch (IOException ex) {
-                     // TODO Auto-generated catch block
-                     System.out.println("saveBoard threw an Exception");
-                  }
+                  gameLoop.submit(GameLoop.SAVE);
                   break;
                case R: //rotate
-                  d = null;
                   System.out.println("Rotating board");
-                  board.rotate(true);
+                  gameLoop.submit(GameLoop.ROTATE);
+                  break;
+               case U: //undo, as many moves back as the history holds
+                  gameLoop.submit(GameLoop.UNDO);
+                  break;
+               case Y: //redo a move that was undone
+                  gameLoop.submit(GameLoop.REDO);
+                  break;
+               case H: //hint
+                  gameLoop.submit(GameLoop.HINT);
                   break;
                default: break;
             }
-            //if board can move, move and add random tile
-            if ((d!=null) && board.canMove(d)) {
-               board.move(d);
-               board.addRandomTile();
-            }
-            refreshDisplay();
-
-            //if board.isgameover, show overlay screen
-            if (board.isGameOver()) {
-               Rectangle endRect = new Rectangle();
-               endRect.setWidth(pane.getWidth());
-               endRect.setHeight(pane.getHeight());
-               endRect.setFill(COLOR_GAME_OVER);
-
-               Text endText = new Text();
-               endText.setText("Game Over!");
-               endText.setFont(Font.font("Times New Roman", FontWeight.BOLD, 60));
-               stackpane.getChildren().addAll(endRect, endText);
-            }
          }
    }
 
 
+   /*
+    * Name: stop
+    * Purpose: stop the game loop, which saves the board one last time and
+    *    closes the journal, and wait for the save to reach the disk
+    * Parameters: none
+    * Return: void
+    */
+   @Override
+      public void stop() {
+         gameLoop.close();
+         checkpoint.close();
+      }
+
+   /*
+    * Name: hintReady
+    * Purpose: called on the hint search's thread with each answer it
+    *    finds; shows it on the FX thread if the board hasn't moved since
+    * Parameters: frame (BoardSnapshot) - the frame the hint is for;
+    *    direction (Direction) - the best move found, or null
+    * Return: void
+    */
+   private void hintReady(BoardSnapshot frame, Direction direction) {
+      Platform.runLater(() -> {
+         //drop answers for a board the player has already moved
+         if (direction != null && frame == gameLoop.getFrame()) {
+            hintText.setText(getArrow(direction));
+         }
+      });
+   }
+
+   /*
+    * Name: getArrow
+    * Purpose: get the arrow that shows a direction
+    * Parameters: direction (Direction) - the direction to show
+    * Return: String (an arrow pointing that way)
+    */
+   private static String getArrow(Direction direction) {
+      switch (direction) {
+         case UP:
+            return "\u2191";
+         case DOWN:
+            return "\u2193";
+         case LEFT:
+            return "\u2190";
+         default:
+            return "\u2192";
+      }
+   }
+
    // The method used to process the command line arguments
    private void processArgs(String[] args)
    {
@@ -381,6 +860,11 @@ public class Gui2048 extends Application {
             // the output file to be used to save the board
             outputBoard = args[i + 1];
          }
+         else if(args[i].equals("-j"))
+         {   // We are processing the argument that specifies
+            // the journal file the game is recorded to
+            outputJournal = args[i + 1];
+         }
          else if(args[i].equals("-s"))
          {   // We are processing the argument that specifies
             // the size of the Board
@@ -401,11 +885,12 @@ public class Gui2048 extends Application {
          boardSize = 4;
 
       // Initialize the Game Board
+      random = new JournalRandom(System.nanoTime());
       try{
          if(inputBoard != null)
-            board = new Board(inputBoard, new Random());
+            board = new Board(inputBoard, random);
          else
-            board = new Board(boardSize, new Random());
+            board = new Board(boardSize, random);
       }
       catch (Exception e)
       {
@@ -423,7 +908,7 @@ public class Gui2048 extends Application {
    private static void printUsage()
    {
       System.out.println("Gui2048");
-      System.out.println("Usage:  Gui2048 [-i|o file ...]");
+      System.out.println("Usage:  Gui2048 [-i|o|j file ...]");
       System.out.println();
       System.out.println("  Command line arguments come in pairs of the "+ 
             "form: <command> <argument>");
@@ -435,12 +920,19 @@ public class Gui2048 extends Application {
             "used to save the 2048 board");
       System.out.println("                If none specified then the " + 
             "default \"2048.board\" file will be used");  
+      System.out.println("  -j [file]  -> Specifies a new file that the " +
+            "game is journaled to, for Replay");
+      System.out.println("                If none specified then the " +
+            "game isn't journaled; an existing file is never overwritten");
       System.out.println("  -s [size]  -> Specifies the size of the 2048" + 
             "board if an input file hasn't been"); 
       System.out.println("                specified.  If both -s and -i" + 
             "are used, then the size of the board"); 
       System.out.println("                will be determined by the input" +
             " file. The default size is 4.");
+      System.out.println();
+      System.out.println("  While playing, press H for a hint, U to undo " +
+            "and Y to redo");
    }
 
 
@@ -0,0 +1,196 @@
+/**
+ * File: HintSearch.java
+ * Looks for the best move of a board in the background, so a GUI can show
+ * a hint without blocking its own thread.
+ *
+ * The search runs on a single daemon thread against a snapshot of the board,
+ * taken when it starts, and gets better the longer it runs: 4x4 boards are
+ * searched with Expectimax one depth deeper at a time, other sizes (and
+ * 4x4 boards with a tile too large to pack, see BitBoard.fits) with
+ * MonteCarlo in rounds of doubling length. Each round's answer is passed
+ * on as soon as it is known, until the time budget runs out or the search
+ * is cancelled.
+ *
+ * MonteCarlo's rollouts run on a ForkJoin pool of the search's own, one
+ * thread short of the cores, not the common pool that Board's parallel
+ * slides use, so a search can't slow down the moves of the game it hints
+ * for. Cancelling sets a flag the rollouts check after every move and
+ * Expectimax at every chance node, so a cancelled search frees the thread
+ * straight away instead of finishing the depth or round it is in. The flag
+ * is set under the same lock hints are passed on under, so once cancel
+ * returns no hint of the cancelled search is passed on.
+ *
+ **/
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+import java.util.function.*;
+
+/*
+ * Name: HintSearch
+ * Purpose: To find hints for a board off the caller's thread
+ */
+public class HintSearch {
+
+   // deepest Expectimax search to try
+   private static final int MAX_DEPTH = 8;
+
+   // length of the first MonteCarlo round; each later one is twice as long
+   private static final long FIRST_ROUND_MILLIS = 50;
+
+   // a search one ply deeper takes about this many times as long
+   private static final int DEPTH_GROWTH = 8;
+
+   private final long budgetMillis;
+   private final ExecutorService executor;
+
+   // only touched on the executor thread
+   private final Expectimax expectimax = new Expectimax(18);
+   private final MonteCarlo monteCarlo = new MonteCarlo(new ForkJoinPool(
+            Math.max(1, Runtime.getRuntime().availableProcessors() - 1)));
+
+   private Future<?> running;
+   // set to stop the running search; also the lock its hints are passed
+   // on under
+   private AtomicBoolean cancelled;
+
+   /*
+    * Name: HintSearch
+    * Purpose: constructor
+    * Parameters: budgetMillis (long) - how long each search may run
+    * Return: constructor has no return type
+    */
+   public HintSearch(long budgetMillis) {
+      this.budgetMillis = budgetMillis;
+      this.executor = Executors.newSingleThreadExecutor(runnable -> {
+         Thread thread = new Thread(runnable, "hint-search");
+         thread.setDaemon(true);
+         return thread;
+      });
+   }
+
+   /*
+    * Name: start
+    * Purpose: cancel any search in progress and start searching a board
+    * Parameters: board (Board) - board to search; a snapshot of it is
+    *    taken before returning, so the caller is free to move it afterwards;
+    *    onHint (Consumer<Direction>) - called on the search thread with the
+    *    best move each time a round of the search finishes
+    * Return: void
+    */
+   public void start(Board board, Consumer<Direction> onHint) {
+      cancel();
+      if (board.isGameOver()) {
+         return;
+      }
+      BoardSnapshot snapshot = board.snapshot();
+      boolean packed = BitBoard.fits(board);
+      int twoProbability = board.TWO_PROBABILITY;
+      long deadline = System.nanoTime() +
+         TimeUnit.MILLISECONDS.toNanos(this.budgetMillis);
+      AtomicBoolean cancelled = new AtomicBoolean();
+      this.cancelled = cancelled;
+      this.running = this.executor.submit(() -> {
+         if (packed) {
+            deepen(snapshot, twoProbability, deadline, cancelled, onHint);
+         }
+         else {
+            rollout(snapshot, deadline, cancelled, onHint);
+         }
+      });
+   }
+
+   /*
+    * Name: cancel
+    * Purpose: stop the search in progress, if any; no more hints from it
+    *    are passed on once this returns. If one is being passed on, waits
+    *    for the callback to finish
+    * Parameters: none
+    * Return: void
+    */
+   public void cancel() {
+      if (this.running != null) {
+         synchronized (this.cancelled) {
+            this.cancelled.set(true);
+         }
+         this.running.cancel(true);
+         this.running = null;
+      }
+   }
+
+   /*
+    * Name: passOn
+    * Purpose: private method to hand a hint to the callback, unless the
+    *    search has been cancelled
+    * Parameters: cancelled (AtomicBoolean) - the search's flag;
+    *    onHint (Consumer<Direction>) - the callback;
+    *    best (Direction) - the hint
+    * Return: boolean (false if the search was cancelled)
+    */
+   private static boolean passOn(AtomicBoolean cancelled,
+         Consumer<Direction> onHint, Direction best) {
+      synchronized (cancelled) {
+         if (cancelled.get()) {
+            return false;
+         }
+         onHint.accept(best);
+         return true;
+      }
+   }
+
+   /*
+    * Name: deepen
+    * Purpose: iterative deepening with Expectimax: search depth 1, 2, ...
+    *    while the next depth is expected to finish before the deadline
+    * Parameters: board (BoardSnapshot) - 4x4 board that fits a BitBoard;
+    *    twoProbability (int) - percent chance a new tile is a 2;
+    *    deadline (long) - System.nanoTime() to stop at;
+    *    cancelled (AtomicBoolean) - set when the search is cancelled;
+    *    onHint (Consumer<Direction>) - told the best move after each depth
+    * Return: void
+    */
+   private void deepen(BoardSnapshot board, int twoProbability,
+         long deadline, AtomicBoolean cancelled, Consumer<Direction> onHint) {
+      long bits = BitBoard.pack(board);
+      for (int depth = 1; depth <= MAX_DEPTH; depth++) {
+         long started = System.nanoTime();
+         Direction best = this.expectimax.bestMove(bits, depth,
+               twoProbability, cancelled);
+         if (!passOn(cancelled, onHint, best)) {
+            return;
+         }
+
+         long now = System.nanoTime();
+         if (now + (now - started) * DEPTH_GROWTH > deadline) {
+            return;
+         }
+      }
+   }
+
+   /*
+    * Name: rollout
+    * Purpose: MonteCarlo rounds of doubling length until the deadline;
+    *    later rounds play more games, so their answer replaces the last
+    * Parameters: snapshot (BoardSnapshot) - board to search;
+    *    deadline (long) - System.nanoTime() to stop at;
+    *    cancelled (AtomicBoolean) - set when the search is cancelled;
+    *    onHint (Consumer<Direction>) - told the best move after each round
+    * Return: void
+    */
+   private void rollout(BoardSnapshot snapshot, long deadline,
+         AtomicBoolean cancelled, Consumer<Direction> onHint) {
+      Board board = new Board(snapshot, new Random());
+      long round = FIRST_ROUND_MILLIS;
+      long left;
+      while ((left = TimeUnit.NANOSECONDS.toMillis(
+                  deadline - System.nanoTime())) > 0) {
+         Direction best = this.monteCarlo.bestMove(board,
+               Math.min(round, left), cancelled);
+         if (!passOn(cancelled, onHint, best)) {
+            return;
+         }
+         round *= 2;
+      }
+   }
+}
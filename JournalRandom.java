@@ -0,0 +1,62 @@
+/**
+ * File: JournalRandom.java
+ * A Random whose state can be read and restored. It generates exactly the
+ * same numbers as java.util.Random seeded the same way, but where Random
+ * keeps its 48 bit state private, this class lets a GameJournal store it
+ * in a keyframe and pick the sequence up again from there later.
+ *
+ * Unlike java.util.Random it is not safe to share between threads; like
+ * the Board it feeds, it belongs to one thread.
+ *
+ **/
+
+import java.util.*;
+
+/*
+ * Name: JournalRandom
+ * Purpose: To generate random numbers from a state that can be saved
+ */
+public class JournalRandom extends Random {
+   private static final long serialVersionUID = 1L;
+
+   // the linear congruential generator used by java.util.Random
+   private static final long MULTIPLIER = 0x5DEECE66DL;
+   private static final long ADDEND = 0xBL;
+   private static final long MASK = (1L << 48) - 1;
+
+   // set through setSeed by the Random constructor, so it must not have
+   // an initializer of its own
+   private long state;
+
+   /*
+    * Name: JournalRandom
+    * Purpose: constructor
+    * Parameters: seed (long) - seed, as for new Random(seed)
+    * Return: constructor has no return type
+    */
+   public JournalRandom(long seed) {
+      super(seed);
+   }
+
+   @Override
+      public void setSeed(long seed) {
+         super.setSeed(seed);
+         this.state = (seed ^ MULTIPLIER) & MASK;
+      }
+
+   @Override
+      protected int next(int bits) {
+         this.state = (this.state * MULTIPLIER + ADDEND) & MASK;
+         return (int) (this.state >>> (48 - bits));
+      }
+
+   // Return the current state, to be passed back to setState later
+   public long getState() {
+      return this.state;
+   }
+
+   // Continue the sequence from a state returned by getState
+   public void setState(long state) {
+      this.state = state & MASK;
+   }
+}
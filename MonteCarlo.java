@@ -0,0 +1,205 @@
+/**
+ * File: MonteCarlo.java
+ * An AI that scores each of the four moves by playing random games
+ * (rollouts) from the position after the move until the game is over, and
+ * picks the move whose rollouts ended with the best average score.
+ *
+ * Rollouts run on every worker of a ForkJoin pool (the common pool unless
+ * one is given) until the time budget runs out or the caller cancels the
+ * search; a rollout checks both after every move, so a large board's long
+ * games can't hold the search, or the pool, past its budget. Each worker
+ * plays on its own copies of the board, reused
+ * from one rollout to the next, and draws from ThreadLocalRandom, so the
+ * workers share nothing until their totals are added up at the end.
+ *
+ **/
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+/*
+ * Name: MonteCarlo
+ * Purpose: To choose moves for a board of any size with random rollouts
+ */
+public class MonteCarlo {
+
+   private static final Direction[] DIRECTIONS = Direction.values();
+
+   private final ForkJoinPool pool;
+
+   /*
+    * Name: MonteCarlo
+    * Purpose: constructor; rollouts run on the common ForkJoin pool
+    * Parameters: none
+    * Return: constructor has no return type
+    */
+   public MonteCarlo() {
+      this(ForkJoinPool.commonPool());
+   }
+
+   /*
+    * Name: MonteCarlo
+    * Purpose: constructor
+    * Parameters: pool (ForkJoinPool) - pool to run rollouts on; one
+    *    worker is started per thread of the pool
+    * Return: constructor has no return type
+    */
+   public MonteCarlo(ForkJoinPool pool) {
+      this.pool = pool;
+   }
+
+   /*
+    * Name: bestMove
+    * Purpose: find the move with the best average rollout score; every
+    *    legal move gets at least one rollout even if the budget is tiny,
+    *    cut short if need be (see rollouts)
+    * Parameters: board (Board) - board to move, not changed;
+    *    budgetMillis (long) - how long to spend on rollouts
+    * Return: Direction (the best move, or null if the game is over)
+    */
+   public Direction bestMove(Board board, long budgetMillis) {
+      return bestMove(board, budgetMillis, new AtomicBoolean());
+   }
+
+   /*
+    * Name: bestMove
+    * Purpose: find the best move like bestMove above, stopping early if
+    *    the search is cancelled; interrupting the calling thread doesn't
+    *    reach the pool's workers, so this is how another thread stops it
+    * Parameters: board (Board) - board to move, not changed;
+    *    budgetMillis (long) - how long to spend on rollouts;
+    *    cancelled (AtomicBoolean) - set to stop the rollouts
+    * Return: Direction (the best move of the rollouts played, or null if
+    *    the game is over)
+    */
+   public Direction bestMove(Board board, long budgetMillis,
+         AtomicBoolean cancelled) {
+      if (board.isGameOver()) {
+         return null;
+      }
+      long deadline = System.nanoTime() +
+         TimeUnit.MILLISECONDS.toNanos(budgetMillis);
+
+      List<Callable<long[]>> workers = new ArrayList<>();
+      for (int i = 0; i < pool.getParallelism(); i++) {
+         workers.add(() -> rollouts(board, deadline, cancelled));
+      }
+
+      // totals[d] = sum of final scores, totals[4 + d] = rollout count
+      long[] totals = new long[8];
+      for (Future<long[]> result : pool.invokeAll(workers)) {
+         long[] worker;
+         try {
+            worker = result.get();
+         }
+         catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            break;
+         }
+         catch (ExecutionException e) {
+            throw new IllegalStateException("rollout failed", e.getCause());
+         }
+         for (int i = 0; i < totals.length; i++) {
+            totals[i] += worker[i];
+         }
+      }
+
+      Direction best = null;
+      double bestAverage = -1;
+      for (Direction direction : DIRECTIONS) {
+         int d = direction.ordinal();
+         if (totals[4 + d] > 0) {
+            double average = (double) totals[d] / totals[4 + d];
+            if (average > bestAverage) {
+               bestAverage = average;
+               best = direction;
+            }
+         }
+      }
+      return best;
+   }
+
+   /*
+    * Name: rollouts
+    * Purpose: one worker's share of the search: cycle through the legal
+    *    moves, playing a random game after each, until the deadline. A
+    *    game still going at the deadline is dropped, except on the first
+    *    pass: there each legal move gets an equal share of the time left
+    *    and counts its game at the score it reached, so every move has a
+    *    score to compare however short the budget
+    * Parameters: board (Board) - position to search from, only read;
+    *    deadline (long) - System.nanoTime() to stop at;
+    *    cancelled (AtomicBoolean) - stops the rollouts when set
+    * Return: long[] (sum of final scores for each direction, followed by
+    *    the number of rollouts for each direction)
+    */
+   private static long[] rollouts(Board board, long deadline,
+         AtomicBoolean cancelled) {
+      Random random = ThreadLocalRandom.current();
+      // rollouts are never undone, so don't pay for recording moves
+      Board start = new Board(board, random, 0);
+      Board game = new Board(board, random, 0);
+      long[] totals = new long[8];
+
+      int legal = 0;
+      for (Direction direction : DIRECTIONS) {
+         if (start.canMove(direction)) {
+            legal++;
+         }
+      }
+
+      boolean first = true;
+      while (first || !stopped(deadline, cancelled)) {
+         int left = legal;
+         for (Direction direction : DIRECTIONS) {
+            if (!start.canMove(direction)) {
+               continue;
+            }
+            long stop = deadline;
+            if (first) {
+               long now = System.nanoTime();
+               stop = now + Math.max(0, deadline - now) / left--;
+            }
+            game.copyFrom(start);
+            game.move(direction);
+            game.addRandomTile();
+            if (playOut(game, random, stop, cancelled) || first) {
+               totals[direction.ordinal()] += game.getScore();
+               totals[4 + direction.ordinal()]++;
+            }
+         }
+         first = false;
+      }
+      return totals;
+   }
+
+   /*
+    * Name: playOut
+    * Purpose: play random moves until the game is over or it is time to
+    *    stop
+    * Parameters: game (Board) - board to play on;
+    *    random (Random) - picks the moves;
+    *    stop (long) - System.nanoTime() to stop at;
+    *    cancelled (AtomicBoolean) - stops the game when set
+    * Return: boolean (true if the game was played to the end)
+    */
+   private static boolean playOut(Board game, Random random, long stop,
+         AtomicBoolean cancelled) {
+      while (!game.isGameOver()) {
+         if (stopped(stop, cancelled)) {
+            return false;
+         }
+         game.move(MovePolicy.RANDOM.choose(game, random));
+         game.addRandomTile();
+      }
+      return true;
+   }
+
+   // Return true once the deadline has passed, the search is cancelled or
+   // the thread is interrupted
+   private static boolean stopped(long deadline, AtomicBoolean cancelled) {
+      return System.nanoTime() >= deadline || cancelled.get() ||
+         Thread.currentThread().isInterrupted();
+   }
+}
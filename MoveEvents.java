@@ -0,0 +1,149 @@
+/**
+ * File: MoveEvents.java
+ * What a move did to each tile it touched: tiles that slid, tiles that
+ * merged into another and the tile added after it, so a GUI can animate
+ * just those tiles instead of redrawing the board.
+ *
+ * Events are kept as triples of ints in one array (the tile's cell before
+ * the move, its cell after it, and its kind and exponent packed into one
+ * int), not as an object each, and the array is kept from move to move,
+ * so recording a move allocates nothing once the array has grown to the
+ * largest move seen. Tiles that didn't move have no event.
+ *
+ * Boards of Board.PARALLEL_THRESHOLD or more slide their lines on several
+ * threads and don't record the tiles they slide; their events are marked
+ * incomplete, and whoever reads them should redraw the board instead.
+ *
+ **/
+
+import java.util.*;
+
+/*
+ * Name: MoveEvents
+ * Purpose: To record which tiles a move slid, merged and added
+ */
+public class MoveEvents {
+
+   // kinds of event: a tile slid to an empty cell, a tile slid onto a tile
+   // of the same value and merged with it, or a tile was added after the
+   // move (its from and to cells are the same)
+   public static final int SLIDE = 0;
+   public static final int MERGE = 1;
+   public static final int SPAWN = 2;
+
+   // ints per event, and the field of each
+   private static final int EVENT_INTS = 3;
+   private static final int FROM = 0;
+   private static final int TO = 1;
+   private static final int VALUE = 2;
+
+   // the kind is kept above the exponent in an event's value
+   private static final int KIND_SHIFT = 8;
+   private static final int EXPONENT_MASK = (1 << KIND_SHIFT) - 1;
+
+   // from, to and value of each event, in the order they happened
+   private int[] events;
+   private int count;
+
+   // false if the move slid tiles it didn't record
+   private boolean complete = true;
+
+   // Make an empty buffer, which grows as moves need it to
+   public MoveEvents() {
+      this.events = new int[16 * EVENT_INTS];
+   }
+
+   // Make a buffer holding count events of events
+   private MoveEvents(int[] events, int count, boolean complete) {
+      this.events = events;
+      this.count = count;
+      this.complete = complete;
+   }
+
+   // Forget every event, keeping the array
+   public void clear() {
+      this.count = 0;
+      this.complete = true;
+   }
+
+   // Note that the move slid tiles without recording them
+   void markIncomplete() {
+      this.complete = false;
+   }
+
+   // Return true if every tile the move touched has an event
+   public boolean isComplete() {
+      return this.complete;
+   }
+
+   /*
+    * Name: add
+    * Purpose: record an event; called by Board as it moves
+    * Parameters: kind (int) - SLIDE, MERGE or SPAWN;
+    *    from (int), to (int) - cell the tile was in and moved to, in
+    *       row-major order;
+    *    exponent (byte) - exponent of the tile once it is at to
+    * Return: void
+    */
+   void add(int kind, int from, int to, byte exponent) {
+      int index = this.count * EVENT_INTS;
+      if (index == this.events.length) {
+         this.events = Arrays.copyOf(this.events,
+               Math.max(16 * EVENT_INTS, this.events.length * 2));
+      }
+      this.events[index + FROM] = from;
+      this.events[index + TO] = to;
+      this.events[index + VALUE] = (kind << KIND_SHIFT) | exponent;
+      this.count++;
+   }
+
+   // Return the number of events recorded
+   public int size() {
+      return this.count;
+   }
+
+   // Return the kind of event i: SLIDE, MERGE or SPAWN
+   public int getKind(int i) {
+      return this.events[i * EVENT_INTS + VALUE] >>> KIND_SHIFT;
+   }
+
+   // Return the cell the tile of event i was in (row * size + col)
+   public int getFrom(int i) {
+      return this.events[i * EVENT_INTS + FROM];
+   }
+
+   // Return the cell the tile of event i ended up in
+   public int getTo(int i) {
+      return this.events[i * EVENT_INTS + TO];
+   }
+
+   // Return the value of the tile at getTo(i) once event i is done
+   public int getValue(int i) {
+      return 1 << (this.events[i * EVENT_INTS + VALUE] & EXPONENT_MASK);
+   }
+
+   /*
+    * Name: copy
+    * Purpose: copy the events recorded so far into a buffer of their own,
+    *    which doesn't change when this one records the next move
+    * Parameters: none
+    * Return: MoveEvents (the copy)
+    */
+   public MoveEvents copy() {
+      return new MoveEvents(Arrays.copyOf(this.events,
+               this.count * EVENT_INTS), this.count, this.complete);
+   }
+
+   @Override
+      public String toString() {
+         StringBuilder outputString = new StringBuilder("MoveEvents(");
+         for (int i = 0; i < this.count; i++) {
+            outputString.append(i == 0 ? "" : ", ")
+               .append(this.getKind(i) == SLIDE ? "slide " :
+                     this.getKind(i) == MERGE ? "merge " : "spawn ")
+               .append(this.getFrom(i)).append("->").append(this.getTo(i))
+               .append('=').append(this.getValue(i));
+         }
+         return outputString.append(')').toString();
+      }
+}
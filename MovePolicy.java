@@ -0,0 +1,114 @@
+/**
+ * File: MovePolicy.java
+ * A strategy that picks the next move of a game, used by Simulator to
+ * play games without a GUI.
+ *
+ **/
+
+import java.util.*;
+
+/*
+ * Name: MovePolicy
+ * Purpose: To choose which direction to move a Board in
+ */
+public interface MovePolicy {
+
+   /*
+    * Name: choose
+    * Purpose: pick the next move; only called while the game isn't over
+    * Parameters: board (Board) - the board to move;
+    *    random (Random) - random numbers owned by the calling thread
+    * Return: Direction (a direction the board can move in)
+    */
+   Direction choose(Board board, Random random);
+
+   // Return true if the policy can play on boards of this size
+   default boolean supports(int boardSize) {
+      return true;
+   }
+
+   // Picks uniformly among the directions the board can move in
+   MovePolicy RANDOM = new MovePolicy() {
+      // Direction.values() makes a new array on every call; this one is
+      // the policy's own, so no caller can reorder it
+      private final Direction[] directions = Direction.values();
+
+      @Override
+         public Direction choose(Board board, Random random) {
+            int count = 0;
+            for (Direction direction : this.directions) {
+               if (board.canMove(direction)) {
+                  count++;
+               }
+            }
+            // walk the legal directions again to the chosen one
+            int choice = random.nextInt(count);
+            for (Direction direction : this.directions) {
+               if (board.canMove(direction) && choice-- == 0) {
+                  return direction;
+               }
+            }
+            return null;
+         }
+   };
+
+   // Keeps tiles in the bottom left corner: down, then left, then right,
+   // and up only when nothing else works
+   MovePolicy CORNER = new MovePolicy() {
+      private final Direction[] order = {
+         Direction.DOWN, Direction.LEFT, Direction.RIGHT, Direction.UP
+      };
+
+      @Override
+         public Direction choose(Board board, Random random) {
+            for (Direction direction : order) {
+               if (board.canMove(direction)) {
+                  return direction;
+               }
+            }
+            return Direction.UP;
+         }
+   };
+
+   /*
+    * Name: expectimax
+    * Purpose: a policy that asks Expectimax for every move; each thread
+    *    gets its own search and transposition table
+    * Parameters: depth (int) - how many moves ahead to search
+    * Return: MovePolicy (policy for 4x4 boards)
+    */
+   static MovePolicy expectimax(int depth) {
+      ThreadLocal<Expectimax> searches =
+         ThreadLocal.withInitial(() -> new Expectimax(16));
+      return new MovePolicy() {
+         @Override
+            public Direction choose(Board board, Random random) {
+               return searches.get().bestMove(board, depth);
+            }
+
+         @Override
+            public boolean supports(int boardSize) {
+               return boardSize == 4;
+            }
+      };
+   }
+
+   /*
+    * Name: forName
+    * Purpose: look up a policy by the name used on the command line
+    * Parameters: name (String) - policy name, case insensitive
+    * Return: MovePolicy (the policy, or null if there is none by that name)
+    */
+   static MovePolicy forName(String name) {
+      switch (name.toLowerCase()) {
+         case "random":
+            return RANDOM;
+         case "corner":
+            return CORNER;
+         case "expectimax":
+            return expectimax(3);
+         default:
+            return null;
+      }
+   }
+}
@@ -0,0 +1,37 @@
+/**
+ * File: MoveResult.java
+ * Represents the outcome of a single move on a Board: whether any tile
+ * moved and how much the score went up. Board reuses one MoveResult for
+ * every move, so a result is only valid until the next move.
+ *
+ **/
+
+/*
+ * Name: MoveResult
+ * Purpose: To report what a move did to a Board
+ */
+public class MoveResult {
+   private boolean changed;
+   private int scoreGained;
+
+   // Set the outcome of the latest move
+   void set(boolean changed, int scoreGained) {
+      this.changed = changed;
+      this.scoreGained = scoreGained;
+   }
+
+   // Return true if any tile moved or merged
+   public boolean isChanged() {
+      return changed;
+   }
+
+   // Return the score gained by merges during the move
+   public int getScoreGained() {
+      return scoreGained;
+   }
+
+   @Override
+      public String toString() {
+         return "MoveResult(" + changed + ", " + scoreGained + ")";
+      }
+}
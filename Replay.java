@@ -0,0 +1,243 @@
+/**
+ * File: Replay.java
+ * Plays back a journal written by GameJournal. Any position of the game
+ * can be rebuilt by loading the starting board, restoring the random
+ * state and re-applying the operations through Board.move and
+ * Board.addRandomTile, exactly as they were played.
+ *
+ * Every KEYFRAME_INTERVAL operations the replay keeps a keyframe: a
+ * snapshot of the board and the random state at that point. Seeking
+ * starts from the nearest keyframe before the target instead of from the
+ * start of the game. Keyframes are taken the first time a seek passes
+ * them, so opening a journal doesn't replay the whole game.
+ *
+ * Undo and redo are replayed with the Board's own history, which only
+ * holds the steps played since the replay started. So a seek starts from
+ * a keyframe before every step that the undos and redos on the way undo
+ * or redo; which step that is is worked out from the operations alone
+ * when the journal is read.
+ *
+ **/
+
+import java.util.*;
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.nio.file.*;
+
+/*
+ * Name: Replay
+ * Purpose: To rebuild any position of a journaled game
+ */
+public class Replay {
+
+   // operations between keyframes
+   private static final int KEYFRAME_INTERVAL = 1024;
+
+   private static final Direction[] DIRECTIONS = Direction.values();
+
+   /*
+    * Name: Keyframe
+    * Purpose: the board and random state after a multiple of
+    *    KEYFRAME_INTERVAL operations
+    */
+   private static class Keyframe {
+      final BoardSnapshot board;
+      final long state;
+
+      Keyframe(BoardSnapshot board, long state) {
+         this.board = board;
+         this.state = state;
+      }
+   }
+
+   private final byte[] operations;
+   // for an UNDO or REDO operation, the operation it undoes or redoes;
+   // Integer.MAX_VALUE for the others
+   private final int[] steps;
+   private final List<Keyframe> keyframes = new ArrayList<>();
+
+   /*
+    * Name: Replay
+    * Purpose: constructor; reads a journal
+    * Parameters: inputJournal (String) - journal written by GameJournal
+    * Return: constructor has no return type
+    */
+   public Replay(String inputJournal) throws IOException {
+      ByteBuffer buffer;
+      try (FileChannel channel = FileChannel.open(Paths.get(inputJournal),
+               StandardOpenOption.READ)) {
+         buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0,
+               channel.size());
+      }
+      if (buffer.remaining() < GameJournal.HEADER_BYTES ||
+            buffer.getInt() != GameJournal.MAGIC) {
+         throw new IOException(inputJournal + " is not a game journal");
+      }
+      int version = buffer.getInt();
+      if (version != GameJournal.VERSION) {
+         throw new IOException("Unsupported journal version " + version);
+      }
+      long state = buffer.getLong();
+      BoardFile start = BoardFile.read(buffer);
+      this.keyframes.add(new Keyframe(new Board(start, new Random())
+               .snapshot(), state));
+
+      this.operations = new byte[buffer.remaining()];
+      buffer.get(this.operations);
+      this.steps = findSteps(this.operations);
+   }
+
+   /*
+    * Name: findSteps
+    * Purpose: private method to work out the operation each UNDO and REDO
+    *    applies to, keeping the same stacks of steps as the Board's
+    *    history: moves are steps, and a rotation only means the undone
+    *    ones can't be redone. Only undos and redos that changed the board
+    *    are journaled, so the stacks never run out
+    * Parameters: operations (byte[]) - the journaled operations
+    * Return: int[] (for each UNDO or REDO, the operation it undoes or
+    *    redoes; Integer.MAX_VALUE for every other operation)
+    */
+   private static int[] findSteps(byte[] operations) throws IOException {
+      int[] steps = new int[operations.length];
+      // positions of the operations that can be undone, and redone
+      Deque<Integer> done = new ArrayDeque<>();
+      Deque<Integer> undone = new ArrayDeque<>();
+      for (int i = 0; i < operations.length; i++) {
+         if (operations[i] == GameJournal.UNDO) {
+            if (done.isEmpty()) {
+               throw new IOException("journal operation " + i +
+                     " undoes more than was done");
+            }
+            int step = done.pop();
+            undone.push(step);
+            steps[i] = step;
+         }
+         else if (operations[i] == GameJournal.REDO) {
+            if (undone.isEmpty()) {
+               throw new IOException("journal operation " + i +
+                     " redoes more than was undone");
+            }
+            int step = undone.pop();
+            done.push(step);
+            steps[i] = step;
+         }
+         else {
+            if (operations[i] >= 0 && operations[i] < DIRECTIONS.length) {
+               done.push(i);
+            }
+            undone.clear();
+            steps[i] = Integer.MAX_VALUE;
+         }
+      }
+      return steps;
+   }
+
+   // Return the number of operations in the journal
+   public int length() {
+      return this.operations.length;
+   }
+
+   /*
+    * Name: seek
+    * Purpose: rebuild the board after a number of operations
+    * Parameters: position (int) - how many operations to apply, from 0
+    *    (the starting board) to length()
+    * Return: Board (a new board in that position; it keeps drawing from
+    *    the game's random sequence, so playing on gives the same tiles)
+    */
+   public Board seek(int position) {
+      if (position < 0 || position > this.operations.length) {
+         throw new IndexOutOfBoundsException("position " + position +
+               " is outside the journal of length " + this.operations.length);
+      }
+      int index = Math.min(position / KEYFRAME_INTERVAL,
+            this.keyframes.size() - 1);
+      // step back past every operation an undo or redo on the way needs
+      int earliest = Integer.MAX_VALUE;
+      int scanned = position;
+      while (index > 0) {
+         for (; scanned > index * KEYFRAME_INTERVAL; scanned--) {
+            earliest = Math.min(earliest, this.steps[scanned - 1]);
+         }
+         if (earliest >= index * KEYFRAME_INTERVAL) {
+            break;
+         }
+         index--;
+      }
+      Keyframe keyframe = this.keyframes.get(index);
+      JournalRandom random = new JournalRandom(0);
+      random.setState(keyframe.state);
+      // the keyframe's tiles are shared until the first change in place
+      Board board = new Board(keyframe.board, random);
+
+      for (int i = index * KEYFRAME_INTERVAL; i < position; i++) {
+         apply(board, i);
+         int done = i + 1;
+         if (done % KEYFRAME_INTERVAL == 0 &&
+               done / KEYFRAME_INTERVAL == this.keyframes.size()) {
+            this.keyframes.add(new Keyframe(board.snapshot(),
+                     random.getState()));
+         }
+      }
+      return board;
+   }
+
+   /*
+    * Name: apply
+    * Purpose: private method to apply one operation to a board
+    * Parameters: board (Board) - board to change;
+    *    i (int) - index of the operation
+    * Return: void
+    */
+   private void apply(Board board, int i) {
+      int operation = this.operations[i];
+      if (operation >= 0 && operation < DIRECTIONS.length) {
+         if (!board.move(DIRECTIONS[operation])) {
+            throw new IllegalStateException("journal operation " + i +
+                  " moves " + DIRECTIONS[operation] +
+                  " but the board can't move that way");
+         }
+         board.addRandomTile();
+      }
+      else if (operation == GameJournal.ROTATE_CLOCKWISE) {
+         board.rotate(true);
+      }
+      else if (operation == GameJournal.ROTATE_COUNTERCLOCKWISE) {
+         board.rotate(false);
+      }
+      else if (operation == GameJournal.UNDO && board.canUndo()) {
+         board.undo();
+      }
+      else if (operation == GameJournal.REDO && board.canRedo()) {
+         board.redo();
+      }
+      else {
+         throw new IllegalStateException("journal operation " + i +
+               " has unknown code " + operation +
+               " or can't be undone or redone");
+      }
+   }
+
+   /*
+    * Name: main
+    * Purpose: print the board of a journaled game after some operations
+    * Parameters: args (String[]) - journal file, then optionally how many
+    *    operations to apply (default all of them)
+    * Return: void
+    */
+   public static void main(String[] args) throws IOException {
+      if (args.length < 1 || args.length > 2) {
+         System.out.println("Usage:  Replay journal [operations]");
+         System.exit(-1);
+      }
+      Replay replay = new Replay(args[0]);
+      int position = replay.length();
+      if (args.length == 2) {
+         position = Integer.parseInt(args[1]);
+      }
+      System.out.println("Operation " + position + " of " + replay.length());
+      System.out.print(replay.seek(position));
+   }
+}
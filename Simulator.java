@@ -0,0 +1,294 @@
+/**
+ * File: Simulator.java
+ * Plays many games of 2048 to completion without a GUI, spread over all
+ * cores, and prints statistics about them: the score distribution, how
+ * often each tile was the largest, moves per game and games per second.
+ *
+ * Games are split across a work-stealing ForkJoin pool. Every worker
+ * thread reuses one Board and one Random for all the games it plays, and
+ * game i is always seeded from the base seed and i, so a run gives the
+ * same results no matter how many threads play it.
+ *
+ **/
+
+import java.util.*;
+import java.util.concurrent.*;
+
+/*
+ * Name: Simulator
+ * Purpose: To play batches of 2048 games headless and report on them
+ */
+public class Simulator {
+
+   // games a task plays itself instead of splitting further
+   private static final int GAMES_PER_TASK = 64;
+
+   private final int boardSize;
+   private final MovePolicy policy;
+   private final long seed;
+
+   // score and move count of every game, by game number
+   private int[] scores;
+   private int[] moves;
+
+   /*
+    * Name: Simulator
+    * Purpose: constructor
+    * Parameters: boardSize (int) - dimension of the boards to play on;
+    *    policy (MovePolicy) - picks every move;
+    *    seed (long) - base seed all the games are seeded from
+    * Return: constructor has no return type
+    */
+   public Simulator(int boardSize, MovePolicy policy, long seed) {
+      this.boardSize = boardSize;
+      this.policy = policy;
+      this.seed = seed;
+   }
+
+   /*
+    * Name: Stats
+    * Purpose: totals for a range of games; each task fills its own and
+    *    they are merged when tasks join, so workers never share counters
+    */
+   private static class Stats {
+      long moves;
+      long score;
+      // maxTiles[e] = number of games whose largest tile was 2^e
+      final long[] maxTiles = new long[32];
+
+      void add(Stats other) {
+         moves += other.moves;
+         score += other.score;
+         for (int i = 0; i < maxTiles.length; i++) {
+            maxTiles[i] += other.maxTiles[i];
+         }
+      }
+   }
+
+   /*
+    * Name: GameTask
+    * Purpose: plays games from (inclusive) to to (exclusive), splitting
+    *    in half until the range is small enough
+    */
+   private class GameTask extends RecursiveTask<Stats> {
+      private static final long serialVersionUID = 1L;
+
+      private final int from;
+      private final int to;
+
+      GameTask(int from, int to) {
+         this.from = from;
+         this.to = to;
+      }
+
+      @Override
+         protected Stats compute() {
+            if (to - from > GAMES_PER_TASK) {
+               int middle = (from + to) >>> 1;
+               GameTask first = new GameTask(from, middle);
+               first.fork();
+               Stats stats = new GameTask(middle, to).compute();
+               stats.add(first.join());
+               return stats;
+            }
+
+            Stats stats = new Stats();
+            Player player = players.get();
+            for (int game = from; game < to; game++) {
+               player.play(game, stats);
+            }
+            return stats;
+         }
+   }
+
+   /*
+    * Name: Player
+    * Purpose: the Board and Random one worker thread plays its games with
+    */
+   private class Player {
+      private final Random random = new Random();
+      private final Board board = new Board(boardSize, random);
+
+      Player() {
+         // games are never undone, so don't pay for recording moves
+         this.board.setUndoDepth(0);
+      }
+
+      /*
+       * Name: play
+       * Purpose: play one game to the end and record it
+       * Parameters: game (int) - game number, decides the seed;
+       *    stats (Stats) - totals to add the game to
+       * Return: void
+       */
+      void play(int game, Stats stats) {
+         random.setSeed(seed + game * 0x9E3779B97F4A7C15L);
+         board.newGame();
+
+         int count = 0;
+         while (!board.isGameOver()) {
+            Direction direction = policy.choose(board, random);
+            if (!board.move(direction)) {
+               throw new IllegalStateException("policy chose " + direction
+                     + " which the board can't move in");
+            }
+            board.addRandomTile();
+            count++;
+         }
+
+         scores[game] = board.getScore();
+         moves[game] = count;
+         stats.moves += count;
+         stats.score += board.getScore();
+         stats.maxTiles[maxExponent(board)]++;
+      }
+   }
+
+   private final ThreadLocal<Player> players =
+      ThreadLocal.withInitial(Player::new);
+
+   /*
+    * Name: run
+    * Purpose: play games and print a report to stdout
+    * Parameters: games (int) - how many games to play;
+    *    threads (int) - how many worker threads to play them on
+    * Return: void
+    */
+   public void run(int games, int threads) {
+      this.scores = new int[games];
+      this.moves = new int[games];
+
+      ForkJoinPool pool = new ForkJoinPool(threads);
+      long start = System.nanoTime();
+      Stats stats;
+      try {
+         stats = pool.invoke(new GameTask(0, games));
+      }
+      finally {
+         pool.shutdown();
+      }
+      double seconds = (System.nanoTime() - start) / 1e9;
+
+      System.out.printf("Played %d games on %dx%d boards with %d threads " +
+            "in %.2f s%n", games, boardSize, boardSize, threads, seconds);
+      System.out.printf("Games per second: %.1f%n", games / seconds);
+      System.out.printf("Moves per second: %.0f%n", stats.moves / seconds);
+      System.out.printf("Moves per game:   mean %.1f, %s%n",
+            (double) stats.moves / games, percentiles(this.moves));
+      System.out.printf("Score:            mean %.1f, %s%n",
+            (double) stats.score / games, percentiles(this.scores));
+      System.out.println("Max tile:");
+      for (int e = 0; e < stats.maxTiles.length; e++) {
+         if (stats.maxTiles[e] > 0) {
+            System.out.printf("%10d  %6.2f%%  (%d games)%n", 1L << e,
+                  100.0 * stats.maxTiles[e] / games, stats.maxTiles[e]);
+         }
+      }
+   }
+
+   // Return the score of each game of the last run, by game number
+   int[] getScores() {
+      return this.scores;
+   }
+
+   // Return the number of moves of each game of the last run
+   int[] getMoves() {
+      return this.moves;
+   }
+
+   // Return the exponent of the largest tile on the board
+   private static int maxExponent(Board board) {
+      int max = 0;
+      for (int row = 0; row < board.GRID_SIZE; row++) {
+         for (int col = 0; col < board.GRID_SIZE; col++) {
+            max = Math.max(max, board.getTile(row, col));
+         }
+      }
+      return Integer.numberOfTrailingZeros(max);
+   }
+
+   // Describe the spread of values: min, median, 90th and 99th percentile, max
+   private static String percentiles(int[] values) {
+      int[] sorted = values.clone();
+      Arrays.sort(sorted);
+      int n = sorted.length;
+      return String.format("min %d, p50 %d, p90 %d, p99 %d, max %d",
+            sorted[0], sorted[n / 2], sorted[(int) (n * 0.9)],
+            sorted[(int) (n * 0.99)], sorted[n - 1]);
+   }
+
+   /*
+    * Name: main
+    * Purpose: Run the simulator
+    * Parameters: args (String[]) - arguments, in pairs like Gui2048's
+    * Return: void
+    */
+   public static void main(String[] args) {
+      int games = 1000;
+      int boardSize = 4;
+      int threads = Runtime.getRuntime().availableProcessors();
+      long seed = System.nanoTime();
+      MovePolicy policy = MovePolicy.RANDOM;
+
+      // Arguments must come in pairs
+      if ((args.length % 2) != 0) {
+         printUsage();
+         System.exit(-1);
+      }
+
+      try {
+         for (int i = 0; i < args.length; i += 2) {
+            if (args[i].equals("-n")) {
+               games = Integer.parseInt(args[i + 1]);
+            }
+            else if (args[i].equals("-s")) {
+               boardSize = Integer.parseInt(args[i + 1]);
+            }
+            else if (args[i].equals("-t")) {
+               threads = Integer.parseInt(args[i + 1]);
+            }
+            else if (args[i].equals("-r")) {
+               seed = Long.parseLong(args[i + 1]);
+            }
+            else if (args[i].equals("-p")) {
+               policy = MovePolicy.forName(args[i + 1]);
+            }
+            else {
+               printUsage();
+               System.exit(-1);
+            }
+         }
+      }
+      catch (NumberFormatException e) {
+         printUsage();
+         System.exit(-1);
+      }
+
+      if (policy == null || games < 1 || boardSize < 2 || threads < 1 ||
+            !policy.supports(boardSize)) {
+         printUsage();
+         System.exit(-1);
+      }
+
+      System.out.println("Seed: " + seed);
+      new Simulator(boardSize, policy, seed).run(games, threads);
+   }
+
+   // Print the Usage Message
+   private static void printUsage() {
+      System.out.println("Simulator");
+      System.out.println("Usage:  Simulator [-n games] [-s size] " +
+            "[-p policy] [-t threads] [-r seed]");
+      System.out.println();
+      System.out.println("  -n [games]   -> Number of games to play " +
+            "(default 1000)");
+      System.out.println("  -s [size]    -> Size of the boards (default 4)");
+      System.out.println("  -p [policy]  -> How moves are picked: random, " +
+            "corner or expectimax (default random)");
+      System.out.println("                expectimax only plays 4x4 boards");
+      System.out.println("  -t [threads] -> Worker threads (default: " +
+            "one per core)");
+      System.out.println("  -r [seed]    -> Base seed; the same seed " +
+            "plays the same games");
+   }
+}
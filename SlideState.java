@@ -0,0 +1,201 @@
+/**
+ * File: SlideState.java
+ * What a slide works out about the board it writes, besides the tiles:
+ * the change to the Zobrist hash, the moves the slid board allows, and the
+ * tiles to record for undo. Board.slideLine settles each cell once, as
+ * soon as nothing later in the slide can write to it, so a move reads and
+ * writes each tile once instead of sliding the board and then comparing
+ * it with the old one again for undo, for the hash and for the move mask.
+ *
+ * Lines are slid in order, so when a cell settles, the cell before it in
+ * its line and the cell beside it in the line before have settled too,
+ * and those two pairs are all the move mask needs. Slides split into
+ * tasks (see Board.SlideTask) each keep their own state, and the pairs
+ * across the line where two tasks meet are checked when they are joined.
+ *
+ **/
+
+/*
+ * Name: SlideState
+ * Purpose: To gather the hash change, move mask and undo changes of a
+ *    slide as it writes each tile
+ */
+public class SlideState {
+   // every bit of a move mask set
+   static final int ALL_MOVES = 15;
+
+   // zobristKey(cell, exponent) at KEYS[cell * 32 + exponent], for boards
+   // up to KEY_TABLE_SIZE wide; a board of c tiles can't make a tile
+   // above 2^(c+1), so on these every exponent fits in the 32 columns
+   private static final int KEY_TABLE_SIZE = 5;
+   private static final long[] KEYS = makeKeyTable();
+
+   // the value to XOR into the hash of the board slid from
+   long hash;
+   // bit i set if the slid board can move in Direction.values()[i]
+   int mask;
+   // score gained by a task's lines, or Board.NO_CHANGE
+   int gained;
+   // true while the line being slid is the first of its range, so there
+   // is no line before it to pair with
+   boolean firstLine;
+
+   // where changed tiles are recorded, or null
+   private UndoHistory history;
+   // KEYS, or null if the board is too big for it
+   private long[] keys;
+
+   // move bits for a pair of tiles along a line (a nearer the side the
+   // tiles move towards) and across two lines (a in the line before)
+   private int toward;
+   private int away;
+   private int towardPrevious;
+   private int towardNext;
+
+   // distance from a cell to the same cell of the line before, and
+   // between the cells of a line in the order lines are numbered
+   private int lineStride;
+   private int cellStride;
+
+   /*
+    * Name: start
+    * Purpose: get ready for a slide, forgetting the last one
+    * Parameters: direction (Direction) - which way the tiles slide;
+    *    n (int) - width of the board;
+    *    history (UndoHistory) - history with a step open to record the
+    *       changed tiles in, or null
+    * Return: void
+    */
+   void start(Direction direction, int n, UndoHistory history) {
+      this.hash = 0;
+      this.mask = 0;
+      this.gained = Board.NO_CHANGE;
+      this.firstLine = true;
+      this.history = history;
+      this.keys = (n <= KEY_TABLE_SIZE) ? KEYS : null;
+
+      // LEFT and RIGHT slide rows, numbered down the board; UP and DOWN
+      // slide columns, numbered across it
+      boolean rows = direction == Direction.LEFT ||
+         direction == Direction.RIGHT;
+      Direction opposite;
+      switch (direction) {
+         case LEFT:
+            opposite = Direction.RIGHT;
+            break;
+         case RIGHT:
+            opposite = Direction.LEFT;
+            break;
+         case UP:
+            opposite = Direction.DOWN;
+            break;
+         default:
+            opposite = Direction.UP;
+            break;
+      }
+      this.toward = 1 << direction.ordinal();
+      this.away = 1 << opposite.ordinal();
+      this.towardPrevious =
+         1 << (rows ? Direction.UP : Direction.LEFT).ordinal();
+      this.towardNext =
+         1 << (rows ? Direction.DOWN : Direction.RIGHT).ordinal();
+      this.lineStride = rows ? n : 1;
+      this.cellStride = rows ? 1 : n;
+   }
+
+   /*
+    * Name: settle
+    * Purpose: take in a cell of the slid board that won't be written
+    *    again: record it for undo and hash it if it changed, and add the
+    *    moves it makes possible with the cells settled before it
+    * Parameters: src (byte[]) - tiles before the slide;
+    *    dst (byte[]) - tiles after it;
+    *    cell (int) - the cell;
+    *    previous (int) - the cell before it in its line, or -1 if it is
+    *       the first
+    * Return: void
+    */
+   void settle(byte[] src, byte[] dst, int cell, int previous) {
+      byte old = src[cell];
+      byte now = dst[cell];
+      if (old != now) {
+         this.hash ^= this.key(cell, old) ^ this.key(cell, now);
+         if (this.history != null) {
+            this.history.record(cell, old);
+         }
+      }
+      if (this.mask != ALL_MOVES) {
+         if (previous >= 0) {
+            this.mask |= pairMoves(dst[previous], now, this.toward,
+                  this.away);
+         }
+         if (!this.firstLine) {
+            this.mask |= pairMoves(dst[cell - this.lineStride], now,
+                  this.towardPrevious, this.towardNext);
+         }
+      }
+   }
+
+   /*
+    * Name: join
+    * Purpose: add in the state of the lines slid straight after this
+    *    state's, and the moves across the line where they meet
+    * Parameters: next (SlideState) - state of the following lines;
+    *    dst (byte[]) - tiles after the slide;
+    *    line (int) - first line of next;
+    *    n (int) - width of the board
+    * Return: void
+    */
+   void join(SlideState next, byte[] dst, int line, int n) {
+      this.hash ^= next.hash;
+      this.mask |= next.mask;
+      if (next.gained != Board.NO_CHANGE) {
+         this.gained = (this.gained == Board.NO_CHANGE) ? next.gained :
+            this.gained + next.gained;
+      }
+      // row line starts line * n cells in, column line starts line in
+      int cell = line * this.lineStride;
+      for (int i = 0; i < n && this.mask != ALL_MOVES; i++) {
+         this.mask |= pairMoves(dst[cell - this.lineStride], dst[cell],
+               this.towardPrevious, this.towardNext);
+         cell += this.cellStride;
+      }
+   }
+
+   /*
+    * Name: pairMoves
+    * Purpose: find the moves two neighbouring tiles make possible
+    * Parameters: a (byte), b (byte) - exponents of the tiles;
+    *    towardA (int) - move bit for sliding b onto a;
+    *    towardB (int) - move bit for sliding a onto b
+    * Return: int (the move bits the pair allows)
+    */
+   private static int pairMoves(byte a, byte b, int towardA, int towardB) {
+      int moves = 0;
+      if (b != 0 && (a == 0 || a == b)) {
+         moves |= towardA;
+      }
+      if (a != 0 && (b == 0 || a == b)) {
+         moves |= towardB;
+      }
+      return moves;
+   }
+
+   // Return the Zobrist key of a tile, from the table if the board fits
+   private long key(int cell, byte exponent) {
+      return (this.keys != null) ? this.keys[(cell << 5) | exponent] :
+         Board.zobristKey(cell, exponent);
+   }
+
+   // Return the table of keys for boards up to KEY_TABLE_SIZE wide
+   private static long[] makeKeyTable() {
+      int cells = KEY_TABLE_SIZE * KEY_TABLE_SIZE;
+      long[] keys = new long[cells * 32];
+      for (int cell = 0; cell < cells; cell++) {
+         for (int exponent = 0; exponent < 32; exponent++) {
+            keys[(cell << 5) | exponent] = Board.zobristKey(cell, exponent);
+         }
+      }
+      return keys;
+   }
+}
@@ -0,0 +1,375 @@
+/**
+ * File: UndoHistory.java
+ * The undo and redo history of a Board, kept as a fixed number of steps
+ * in ring buffers that are allocated once, so recording a move never
+ * allocates and the history never grows past its limits.
+ *
+ * A step is a move, with the tile added after it. It holds only the tiles
+ * it changed: for each one, the tile's position and its other value.
+ * Undoing or redoing a step swaps those values with the board's, which
+ * leaves the values needed to go the other way behind, so a change costs
+ * CHANGE_BYTES whichever way it is applied. The score, move mask and
+ * Zobrist hash are swapped the same way.
+ *
+ * Rotations are not steps of their own. As with the original single undo,
+ * undoing a move brings back the board from before the move, unrotated, so
+ * each step also counts the quarter turns made since it; the board turns
+ * back by those before swapping the tiles, and turns again after redoing
+ * them. A rotation means undone moves can't be redone.
+ *
+ * When the tile buffer fills, the oldest steps are dropped to make room.
+ * A single move that changes more tiles than the buffer holds can't be
+ * undone, and clears the history.
+ *
+ **/
+
+/*
+ * Name: UndoHistory
+ * Purpose: To hold the moves of a Board that can be undone and redone
+ */
+public class UndoHistory {
+   // bytes the history takes per changed tile: its position and value
+   public static final int CHANGE_BYTES = 5;
+
+   private final int depth;
+   private final int capacity;
+
+   // changed tiles of all steps, as a ring of capacity entries; allocated
+   // on the first move, since many boards are never moved
+   private int[] changeCells;
+   private byte[] changeValues;
+
+   // step i lives in slot i % depth: where its changes start in the
+   // change ring, how many there are, its other score, move mask and
+   // hash, and the clockwise quarter turns (0 to 3) made after it
+   private final long[] stepStarts;
+   private final int[] stepCounts;
+   private final int[] stepScores;
+   private final int[] stepMasks;
+   private final long[] stepHashes;
+   private final byte[] stepTurns;
+
+   // steps first to current - 1 can be undone, current to last - 1 redone
+   private long first;
+   private long current;
+   private long last;
+
+   // position in the change ring after the last change recorded, and
+   // the index in the ring arrays it falls on
+   private long changeEnd;
+   private int changeIndex;
+
+   // recording up to here overwrites no kept step; past it, record has
+   // to drop the oldest steps first
+   private long changeLimit;
+
+   // true while the newest step is still taking changes, which is in
+   // openSlot; the tile added after a move is recorded as part of it
+   private boolean open;
+   private int openSlot;
+
+   /*
+    * Name: UndoHistory
+    * Purpose: constructor
+    * Parameters: depth (int) - most steps kept; 0 turns the history off;
+    *    capacity (int) - most changed tiles kept, over all steps
+    * Return: constructor has no return type
+    */
+   public UndoHistory(int depth, int capacity) {
+      this.depth = depth;
+      this.capacity = capacity;
+      this.stepStarts = new long[depth];
+      this.stepCounts = new int[depth];
+      this.stepScores = new int[depth];
+      this.stepMasks = new int[depth];
+      this.stepHashes = new long[depth];
+      this.stepTurns = new byte[depth];
+   }
+
+   // Return true if there is a step to undo
+   public boolean canUndo() {
+      return this.current > this.first;
+   }
+
+   // Return true if there is an undone step to redo
+   public boolean canRedo() {
+      return this.last > this.current;
+   }
+
+   // Return true if the newest step is still taking changes
+   public boolean isOpen() {
+      return this.open;
+   }
+
+   /*
+    * Name: clear
+    * Purpose: forget every step, keeping the buffers
+    * Parameters: none
+    * Return: void
+    */
+   public void clear() {
+      this.first = 0;
+      this.current = 0;
+      this.last = 0;
+      this.changeEnd = 0;
+      this.changeIndex = 0;
+      this.open = false;
+   }
+
+   /*
+    * Name: begin
+    * Purpose: start a new step; any undone steps can't be redone after it
+    * Parameters: score (int) - score before the step;
+    *    moveMask (int) - move mask before the step;
+    *    hash (long) - Zobrist hash before the step
+    * Return: void
+    */
+   public void begin(int score, int moveMask, long hash) {
+      this.open = false;
+      if (this.depth == 0) {
+         return;
+      }
+      if (this.current > this.first) {
+         // pick up the change ring where the newest kept step ends
+         int previous = slot(this.current - 1);
+         this.changeEnd = this.stepStarts[previous] +
+            this.stepCounts[previous];
+         this.changeIndex = (int) (this.changeEnd % this.capacity);
+      }
+      if (this.current - this.first == this.depth) {
+         this.first++;
+      }
+      int slot = slot(this.current);
+      this.stepStarts[slot] = this.changeEnd;
+      this.stepCounts[slot] = 0;
+      this.stepScores[slot] = score;
+      this.stepMasks[slot] = moveMask;
+      this.stepHashes[slot] = hash;
+      this.stepTurns[slot] = 0;
+      this.current++;
+      this.last = this.current;
+      this.open = true;
+      this.openSlot = slot;
+      this.changeLimit = this.stepStarts[slot(this.first)] + this.capacity;
+
+      if (this.changeCells == null) {
+         this.changeCells = new int[this.capacity];
+         this.changeValues = new byte[this.capacity];
+      }
+   }
+
+   /*
+    * Name: record
+    * Purpose: add a changed tile to the open step; ignored if no step is
+    *    open
+    * Parameters: cell (int) - position of the tile;
+    *    value (byte) - exponent the tile had before the change
+    * Return: void
+    */
+   public void record(int cell, byte value) {
+      if (!this.open) {
+         return;
+      }
+      if (this.changeEnd >= this.changeLimit && !this.makeRoom()) {
+         return;
+      }
+      int index = this.changeIndex;
+      this.changeCells[index] = cell;
+      this.changeValues[index] = value;
+      this.changeEnd++;
+      this.changeIndex = (index + 1 == this.capacity) ? 0 : index + 1;
+      this.stepCounts[this.openSlot]++;
+   }
+
+   /*
+    * Name: recordChanges
+    * Purpose: add every tile that differs between two boards to the open
+    *    step; ignored if no step is open. Moves record their tiles one by
+    *    one with record as they slide (see SlideState); this is for
+    *    boards that slide on several threads, which can't share a step
+    * Parameters: before (byte[]) - tiles before the move;
+    *    after (byte[]) - tiles after the move
+    * Return: void
+    */
+   public void recordChanges(byte[] before, byte[] after) {
+      int cell = 0;
+      while (this.open && cell < before.length) {
+         long room = this.changeLimit - this.changeEnd;
+         if (room <= 0) {
+            this.makeRoom();
+            continue;
+         }
+         // a chunk that can't run past the free space or the end of the
+         // ring, even if every tile in it changed
+         int end = cell + (int) Math.min(Math.min(room,
+                  this.capacity - this.changeIndex), before.length - cell);
+         int[] changeCells = this.changeCells;
+         byte[] changeValues = this.changeValues;
+         int index = this.changeIndex;
+         for (; cell < end; cell++) {
+            // every tile is written, but the index only moves past the
+            // ones that changed, so there is no branch to mispredict
+            byte value = before[cell];
+            changeCells[index] = cell;
+            changeValues[index] = value;
+            index += (value != after[cell]) ? 1 : 0;
+         }
+         int added = index - this.changeIndex;
+         this.changeEnd += added;
+         this.changeIndex = (index == this.capacity) ? 0 : index;
+         this.stepCounts[this.openSlot] += added;
+      }
+   }
+
+   /*
+    * Name: makeRoom
+    * Purpose: private method to drop the oldest steps whose changes are
+    *    about to be overwritten, when the change ring is full
+    * Parameters: none
+    * Return: boolean (false if the open step fills the ring by itself,
+    *    in which case the whole history is dropped)
+    */
+   private boolean makeRoom() {
+      long step = this.current - 1;
+      while (this.first < step &&
+            this.changeEnd - this.stepStarts[slot(this.first)] >=
+            this.capacity) {
+         this.first++;
+      }
+      long start = this.stepStarts[slot(this.first)];
+      if (this.changeEnd - start >= this.capacity) {
+         // this move alone doesn't fit; it can't be undone, and neither
+         // can anything before it
+         this.first = this.current;
+         this.last = this.current;
+         this.open = false;
+         return false;
+      }
+      this.changeLimit = start + this.capacity;
+      return true;
+   }
+
+   /*
+    * Name: close
+    * Purpose: stop adding changes to the newest step
+    * Parameters: none
+    * Return: void
+    */
+   public void close() {
+      this.open = false;
+   }
+
+   /*
+    * Name: rotated
+    * Purpose: note that the board was rotated, so the newest done step is
+    *    undone from a rotated board; undone steps can't be redone after it
+    * Parameters: rotateClockwise (boolean) - which way it was rotated
+    * Return: void
+    */
+   public void rotated(boolean rotateClockwise) {
+      this.open = false;
+      this.last = this.current;
+      if (this.current > this.first) {
+         int slot = slot(this.current - 1);
+         this.stepTurns[slot] =
+            (byte) ((this.stepTurns[slot] + (rotateClockwise ? 1 : 3)) & 3);
+      }
+   }
+
+   /*
+    * Name: undo
+    * Purpose: step back; the caller applies the step with the methods
+    *    below
+    * Parameters: none
+    * Return: int (slot of the step to undo)
+    */
+   public int undo() {
+      this.open = false;
+      this.current--;
+      return slot(this.current);
+   }
+
+   /*
+    * Name: redo
+    * Purpose: step forward; the caller applies the step with the methods
+    *    below
+    * Parameters: none
+    * Return: int (slot of the step to redo)
+    */
+   public int redo() {
+      this.open = false;
+      this.current++;
+      return slot(this.current - 1);
+   }
+
+   // Return the clockwise quarter turns (0 to 3) made after the step in
+   // a slot, before the step after it
+   public int getTurns(int slot) {
+      return this.stepTurns[slot];
+   }
+
+   // Return the number of tiles the step in a slot changed
+   public int getChangeCount(int slot) {
+      return this.stepCounts[slot];
+   }
+
+   /*
+    * Name: swapChanges
+    * Purpose: swap the values recorded for a step with the tiles of a
+    *    board, which undoes it if it was done and redoes it if undone
+    * Parameters: slot (int) - slot of the step;
+    *    cells (byte[]) - tiles of the board;
+    *    freeCells (FreeCellIndex) - open tiles of the board, kept up to
+    *       date as tiles change; null to leave it for the caller to rebuild;
+    *    backwards (boolean) - true when undoing, so that a tile changed
+    *       twice in a step gets its changes undone in reverse order
+    * Return: void
+    */
+   public void swapChanges(int slot, byte[] cells, FreeCellIndex freeCells,
+         boolean backwards) {
+      int count = this.stepCounts[slot];
+      int first = (int) (this.stepStarts[slot] % this.capacity);
+      int index = backwards ? (first + count - 1) % this.capacity : first;
+      for (int i = 0; i < count; i++) {
+         int cell = this.changeCells[index];
+         byte value = this.changeValues[index];
+         this.changeValues[index] = cells[cell];
+         cells[cell] = value;
+         if (freeCells != null) {
+            freeCells.set(cell, value == 0);
+         }
+         if (backwards) {
+            index = (index == 0) ? this.capacity - 1 : index - 1;
+         }
+         else {
+            index = (index + 1 == this.capacity) ? 0 : index + 1;
+         }
+      }
+   }
+
+   // Swap the board's score with the one recorded for a step
+   public int swapScore(int slot, int score) {
+      int other = this.stepScores[slot];
+      this.stepScores[slot] = score;
+      return other;
+   }
+
+   // Swap the board's move mask with the one recorded for a step
+   public int swapMask(int slot, int moveMask) {
+      int other = this.stepMasks[slot];
+      this.stepMasks[slot] = moveMask;
+      return other;
+   }
+
+   // Swap the board's Zobrist hash with the one recorded for a step
+   public long swapHash(int slot, long hash) {
+      long other = this.stepHashes[slot];
+      this.stepHashes[slot] = hash;
+      return other;
+   }
+
+   // Return the slot step number i lives in
+   private int slot(long i) {
+      return (int) (i % this.depth);
+   }
+}
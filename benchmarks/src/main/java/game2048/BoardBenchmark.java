@@ -0,0 +1,185 @@
+/**
+ * File: BoardBenchmark.java
+ * JMH benchmarks for the hot paths of Board: moves, rotate, the move
+ * checks, undo and saving/loading. Every benchmark runs against boards of
+ * several sizes and fill ratios, loaded from a randomly generated board
+ * file. Run with -prof gc to see allocation rates next to the timings.
+ *
+ **/
+
+package game2048;
+
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+/*
+ * Name: BoardBenchmark
+ * Purpose: To measure Board operations that don't use up the board
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector"})
+@State(Scope.Thread)
+public class BoardBenchmark {
+
+   @Param({"4", "8", "32", "256"})
+   public int gridSize;
+
+   // fraction of the tiles that hold a value
+   @Param({"0.25", "0.5", "0.9"})
+   public double fill;
+
+   private Path boardFile;
+   private Path binaryFile;
+   private Path saveFile;
+   private Board board;
+   // board with a move made on it, for undoRedo
+   private Board movedBoard;
+
+   @Setup(Level.Trial)
+   public void setUp() throws IOException {
+      // a board every move changes, so each move benchmark times a real
+      // move and its undo rather than a failed move and an empty undo
+      for (long seed = 2048; ; seed++) {
+         boardFile = writeRandomBoard(gridSize, fill, seed);
+         board = new Board(boardFile.toString(), new Random(2048));
+         if (canMoveEveryWay(board)) {
+            break;
+         }
+         Files.delete(boardFile);
+      }
+      movedBoard = new Board(board, new Random(2048));
+      movedBoard.move(Direction.LEFT);
+      saveFile = Files.createTempFile("bench", ".board");
+      binaryFile = Files.createTempFile("bench", ".board");
+      board.saveBoard(binaryFile.toString());
+   }
+
+   @TearDown(Level.Trial)
+   public void tearDown() throws IOException {
+      Files.deleteIfExists(boardFile);
+      Files.deleteIfExists(binaryFile);
+      Files.deleteIfExists(saveFile);
+   }
+
+   // Each move benchmark undoes its move so every call sees the same
+   // board, which setUp picked so that the move always changes it
+
+   @Benchmark
+   public boolean moveUp() {
+      boolean moved = board.move(Direction.UP);
+      board.undo();
+      return moved;
+   }
+
+   @Benchmark
+   public boolean moveDown() {
+      boolean moved = board.move(Direction.DOWN);
+      board.undo();
+      return moved;
+   }
+
+   @Benchmark
+   public boolean moveLeft() {
+      boolean moved = board.move(Direction.LEFT);
+      board.undo();
+      return moved;
+   }
+
+   @Benchmark
+   public boolean moveRight() {
+      boolean moved = board.move(Direction.RIGHT);
+      board.undo();
+      return moved;
+   }
+
+   // Undo on its own, without a move's slide in the timing: the move was
+   // made in setUp, and redoing it puts it back for the next call. Undo
+   // and redo replay the same recorded changes, so each is about half
+
+   @Benchmark
+   public Board undoRedo() {
+      movedBoard.undo();
+      movedBoard.redo();
+      return movedBoard;
+   }
+
+   @Benchmark
+   public Board rotate() {
+      board.rotate(true);
+      return board;
+   }
+
+   @Benchmark
+   public boolean isGameOver() {
+      return board.isGameOver();
+   }
+
+   @Benchmark
+   public boolean canMove() {
+      return board.canMove(Direction.LEFT);
+   }
+
+   @Benchmark
+   public Board saveBoard() throws IOException {
+      board.saveBoard(saveFile.toString());
+      return board;
+   }
+
+   @Benchmark
+   public Board loadBoard() throws IOException {
+      return new Board(binaryFile.toString(), new Random(2048));
+   }
+
+   @Benchmark
+   public Board loadTextBoard() throws IOException {
+      return new Board(boardFile.toString(), new Random(2048));
+   }
+
+   // Return true if the board can move in every direction
+   private static boolean canMoveEveryWay(Board board) {
+      for (Direction direction : Direction.values()) {
+         if (!board.canMove(direction)) {
+            return false;
+         }
+      }
+      return true;
+   }
+
+   /*
+    * Name: writeRandomBoard
+    * Purpose: write a board file in the old text format, which
+    *    Board(String, Random) still reads, with a fill fraction of its
+    *    tiles holding values 2 to 1024
+    * Parameters: size (int) - width of the board;
+    *    fill (double) - fraction of tiles to fill;
+    *    seed (long) - seed for the tile values and positions
+    * Return: Path (the temporary file written)
+    */
+   static Path writeRandomBoard(int size, double fill, long seed) 
+      throws IOException {
+      Random random = new Random(seed);
+      Path file = Files.createTempFile("bench", ".board");
+      try (PrintWriter output = new PrintWriter(file.toFile())) {
+         output.println(size);
+         output.println(0);
+         for (int row = 0; row < size; row++) {
+            for (int col = 0; col < size; col++) {
+               int value = 0;
+               if (random.nextDouble() < fill) {
+                  value = 1 << (1 + random.nextInt(10));
+               }
+               output.print(value + " ");
+            }
+            output.println();
+         }
+      }
+      return file;
+   }
+}
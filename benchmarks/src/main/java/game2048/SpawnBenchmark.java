@@ -0,0 +1,81 @@
+/**
+ * File: SpawnBenchmark.java
+ * JMH benchmark for Board.addRandomTile. Adding a tile uses up the board,
+ * and a call takes nanoseconds, far too little to reload the board around
+ * each one. Instead each iteration times a fixed batch of BATCH calls
+ * (Mode.SingleShotTime), spread over a pool of copies of the board made
+ * before the iteration, so every board in the pool takes only a few tiles
+ * and stays close to the fill it started at. The score is the time for
+ * the whole batch.
+ *
+ **/
+
+package game2048;
+
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+/*
+ * Name: SpawnBenchmark
+ * Purpose: To measure adding a random tile to boards of different fills
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 200, batchSize = SpawnBenchmark.BATCH)
+@Measurement(iterations = 50, batchSize = SpawnBenchmark.BATCH)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector"})
+@State(Scope.Thread)
+public class SpawnBenchmark {
+
+   // calls timed per iteration
+   static final int BATCH = 4096;
+
+   // most tiles held by the pool over all its boards
+   private static final int POOL_TILES = 1 << 24;
+
+   @Param({"4", "8", "32", "256"})
+   public int gridSize;
+
+   @Param({"0.25", "0.5", "0.9"})
+   public double fill;
+
+   private Path boardFile;
+   private Board template;
+   private Board[] pool;
+   private int next;
+   private final Random random = new Random(2048);
+
+   @Setup(Level.Trial)
+   public void setUp() throws IOException {
+      boardFile = BoardBenchmark.writeRandomBoard(gridSize, fill, 2048);
+      template = new Board(boardFile.toString(), random);
+      // a board each call if they fit, else a few calls per board
+      pool = new Board[Math.max(1,
+            Math.min(BATCH, POOL_TILES / (gridSize * gridSize)))];
+   }
+
+   @Setup(Level.Iteration)
+   public void refill() {
+      for (int i = 0; i < pool.length; i++) {
+         pool[i] = new Board(template, random);
+      }
+      next = 0;
+   }
+
+   @TearDown(Level.Trial)
+   public void tearDown() throws IOException {
+      Files.deleteIfExists(boardFile);
+   }
+
+   @Benchmark
+   public Board addRandomTile() {
+      Board board = pool[next];
+      next = (next + 1 == pool.length) ? 0 : next + 1;
+      board.addRandomTile();
+      return board;
+   }
+}
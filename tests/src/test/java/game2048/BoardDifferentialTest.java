@@ -0,0 +1,405 @@
+/**
+ * File: BoardDifferentialTest.java
+ * Plays the same games on Board and on BaselineBoard, the original
+ * implementation, and checks that they agree on every tile and the score
+ * after each step. Games are seeded, and both boards draw their random
+ * tiles from their own Random with the same seed, so as long as they
+ * agree on the board they also agree on where the next tile goes.
+ * BitBoard, the packed 4x4 board, is checked against BaselineBoard the
+ * same way, along with the check callers make before packing a Board.
+ *
+ **/
+
+package game2048;
+
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BoardDifferentialTest {
+
+   private static final Direction[] DIRECTIONS = Direction.values();
+
+   @TempDir
+   Path directory;
+
+   @Test
+   void randomGamesMatchBaseline() {
+      for (int size = 2; size <= 9; size++) {
+         for (long seed = 0; seed < 40; seed++) {
+            playGame(size, seed, 2000);
+         }
+      }
+   }
+
+   @Test
+   void denseBoardsMatchBaseline() {
+      Random random = new Random(7);
+      for (int i = 0; i < 20000; i++) {
+         int size = 2 + random.nextInt(7);
+         int[][] grid = randomGrid(size, random);
+         for (Direction direction : DIRECTIONS) {
+            BaselineBoard expected = new BaselineBoard(grid, 100,
+                  new Random(i));
+            Board actual = makeBoard(grid, 100, new Random(i));
+            assertEquals(expected.move(direction), actual.move(direction),
+                  "move " + direction + " of\n" + actual);
+            assertSameBoard(expected, actual, "after " + direction);
+         }
+      }
+   }
+
+   @Test
+   void moveMaskMatchesBaselineOnFullBoards() {
+      Random random = new Random(3);
+      int gameOvers = 0;
+      for (int i = 0; i < 20000; i++) {
+         int size = 2 + random.nextInt(5);
+         int[][] grid = new int[size][size];
+         for (int[] row : grid) {
+            for (int col = 0; col < size; col++) {
+               // mostly full, with few enough values that some merge
+               row[col] = random.nextInt(20) == 0 ? 0 : 2 << random.nextInt(6);
+            }
+         }
+         BaselineBoard expected = new BaselineBoard(grid, 0, new Random(i));
+         Board actual = makeBoard(grid, 0, new Random(i));
+         assertSameBoard(expected, actual, "board " + i);
+         if (expected.isGameOver()) {
+            gameOvers++;
+         }
+         // the mask is kept up to date through a spawn, too
+         expected.addRandomTile();
+         actual.addRandomTile();
+         assertSameBoard(expected, actual, "after a spawn on board " + i);
+      }
+      assertTrue(gameOvers > 0, "no board was game over");
+   }
+
+   @Test
+   void spawnsKeepMoveMaskUntilFull() {
+      Random random = new Random(13);
+      for (int i = 0; i < 3000; i++) {
+         int size = 2 + random.nextInt(11);
+         int[][] grid = new int[size][size];
+         for (int[] row : grid) {
+            for (int col = 0; col < size; col++) {
+               // few values, so tiles added late often block the last move
+               row[col] = random.nextInt(3) == 0 ? 0 : 2 << random.nextInt(3);
+            }
+         }
+         BaselineBoard expected = new BaselineBoard(grid, 0, new Random(i));
+         Board actual = makeBoard(grid, 0, new Random(i));
+         for (int tile = 0; tile < size * size; tile++) {
+            expected.addRandomTile();
+            actual.addRandomTile();
+            assertSameBoard(expected, actual,
+                  "spawn " + tile + " on board " + i);
+         }
+      }
+   }
+
+   @Test
+   void parallelSlidesMatchBaseline() {
+      // boards this wide slide their lines on ForkJoin tasks
+      Random random = new Random(17);
+      for (int size : new int[] {Board.PARALLEL_THRESHOLD,
+               Board.PARALLEL_THRESHOLD + 37}) {
+         int[][] grid = randomGrid(size, random);
+         BaselineBoard expected = new BaselineBoard(grid, 0, new Random(size));
+         Board actual = makeBoard(grid, 0, new Random(size));
+         for (int step = 0; step < 24; step++) {
+            Direction direction = DIRECTIONS[random.nextInt(4)];
+            String context = size + "x" + size + " step " + step + " " +
+               direction;
+            boolean moved = expected.move(direction);
+            assertEquals(moved, actual.move(direction), context);
+            if (moved) {
+               expected.addRandomTile();
+               actual.addRandomTile();
+            }
+            assertSameBoard(expected, actual, context);
+         }
+      }
+   }
+
+   @Test
+   void parallelMoveMaskAcrossTasks() {
+      // a board whose only pair of equal tiles sits across the line where
+      // two slide tasks meet, and whose only gap is in its first line;
+      // sliding that line leaves a move only that pair allows
+      int size = Board.PARALLEL_THRESHOLD;
+      int[][] rows = new int[size][size];
+      for (int row = 0; row < size; row++) {
+         for (int col = 0; col < size; col++) {
+            rows[row][col] = 2 << ((row + 2 * col) % 3);
+         }
+      }
+      for (int col = 0; col < size - 1; col++) {
+         rows[0][col] = 1 << (21 + col % 2);
+      }
+      rows[0][size - 1] = 0;
+      rows[size / 2 - 1][5] = 1 << 20;
+      rows[size / 2][5] = 1 << 20;
+
+      int[][] columns = new int[size][size];
+      for (int row = 0; row < size; row++) {
+         for (int col = 0; col < size; col++) {
+            columns[col][row] = rows[row][col];
+         }
+      }
+      for (Object[] test : new Object[][] {{rows, Direction.RIGHT},
+               {columns, Direction.DOWN}}) {
+         int[][] grid = (int[][]) test[0];
+         Direction direction = (Direction) test[1];
+         BaselineBoard expected = new BaselineBoard(grid, 0, new Random(1));
+         Board actual = makeBoard(grid, 0, new Random(1));
+         assertTrue(expected.move(direction));
+         assertTrue(actual.move(direction));
+         assertSameBoard(expected, actual, direction.toString());
+      }
+   }
+
+   @Test
+   void bitBoardGamesMatchBaseline() {
+      for (long seed = 0; seed < 300; seed++) {
+         Random choices = new Random(~seed);
+         BaselineBoard expected = new BaselineBoard(4, new Random(seed));
+         BitBoard actual = new BitBoard(new Random(seed));
+         assertSameBitBoard(expected, actual, "seed " + seed);
+         for (int step = 0; step < 3000 && !expected.isGameOver(); step++) {
+            String context = "seed " + seed + " step " + step;
+            int choice = choices.nextInt(20);
+            if (choice == 0) {
+               boolean clockwise = choices.nextBoolean();
+               expected.rotate(clockwise);
+               actual.rotate(clockwise);
+            }
+            else if (choice == 1) {
+               expected.undo();
+               actual.undo();
+            }
+            else {
+               Direction direction = DIRECTIONS[choices.nextInt(4)];
+               int score = expected.getScore();
+               boolean moved = expected.move(direction);
+               assertEquals(moved, actual.move(direction),
+                     context + " " + direction);
+               assertEquals(expected.getScore() - score,
+                     actual.getScore() - score, context + " score gained");
+               if (moved) {
+                  expected.addRandomTile();
+                  actual.addRandomTile();
+               }
+            }
+            assertSameBitBoard(expected, actual, context);
+         }
+      }
+   }
+
+   @Test
+   void bitBoardMovesMatchBaseline() throws IOException {
+      // tiles up to 16384, so the largest merge makes 32768, the largest
+      // tile a BitBoard holds
+      Random random = new Random(19);
+      String file = this.directory.resolve("board").toString();
+      for (int i = 0; i < 3000; i++) {
+         int[][] grid = new int[4][4];
+         for (int[] row : grid) {
+            for (int col = 0; col < 4; col++) {
+               row[col] = random.nextInt(4) == 0 ? 0 :
+                  2 << random.nextInt(random.nextBoolean() ? 3 : 14);
+            }
+         }
+         makeBoard(grid, 100, new Random(i)).saveBoard(file);
+         for (Direction direction : DIRECTIONS) {
+            BaselineBoard expected = new BaselineBoard(grid, 100,
+                  new Random(i));
+            BitBoard actual = new BitBoard(file, new Random(i));
+            assertSameBitBoard(expected, actual, "board " + i);
+            assertEquals(expected.move(direction), actual.move(direction),
+                  "move " + direction + " of\n" + actual);
+            assertSameBitBoard(expected, actual, "board " + i + " after " +
+                  direction);
+            assertEquals(BitBoard.pack(expected.getGrid()), actual.getBits(),
+                  "board " + i + " after " + direction);
+         }
+      }
+   }
+
+   @Test
+   void bitBoardOnlyTakesBoardsItMovesTheSame() {
+      int[][] grid = {
+         {1 << 14, 1 << 14, 4, 2},
+         {2, 4, 8, 16},
+         {4, 8, 16, 32},
+         {0, 0, 0, 0}};
+      Board board = makeBoard(grid, 0, new Random(1));
+      assertTrue(BitBoard.fits(board));
+      assertEquals(BitBoard.pack(board), BitBoard.pack(board.snapshot()));
+
+      // two 32768 tiles can't merge into a 4 bit tile, so a board with
+      // one isn't packed, and the AI plays on the Board instead
+      grid[0][0] = 1 << 15;
+      grid[0][1] = 1 << 15;
+      board = makeBoard(grid, 0, new Random(1));
+      assertFalse(BitBoard.fits(board));
+      long packed = BitBoard.pack(board);
+      BaselineBoard expected = new BaselineBoard(grid, 0, new Random(1));
+      assertTrue(expected.move(Direction.LEFT));
+      assertEquals(1 << 16, expected.getGrid()[0][0]);
+      assertEquals(packed, BitBoard.slide(packed, Direction.LEFT),
+            "the packed board merges the 32768 tiles");
+      assertFallback(board);
+
+      // nor is one with a tile above 32768
+      grid[0][0] = 1 << 16;
+      grid[0][1] = 2;
+      board = makeBoard(grid, 0, new Random(1));
+      assertFalse(BitBoard.fits(board));
+      assertFallback(board);
+
+      assertFalse(BitBoard.fits(makeBoard(new int[5][5], 0, new Random(1))));
+   }
+
+   @Test
+   void tryMoveReportsChangeAndScore() {
+      Random random = new Random(5);
+      for (int i = 0; i < 20000; i++) {
+         int[][] grid = randomGrid(2 + random.nextInt(7), random);
+         Direction direction = DIRECTIONS[random.nextInt(4)];
+         BaselineBoard expected = new BaselineBoard(grid, 40, new Random(i));
+         Board actual = makeBoard(grid, 40, new Random(i));
+         boolean moved = expected.move(direction);
+         MoveResult result = actual.tryMove(direction);
+         assertEquals(moved, result.isChanged(), "changed " + direction);
+         assertEquals(expected.getScore() - 40, result.getScoreGained(),
+               "score gained " + direction);
+         assertSameBoard(expected, actual, "after " + direction);
+      }
+   }
+
+   @Test
+   void rotationsMatchBaseline() {
+      Random random = new Random(11);
+      for (int i = 0; i < 5000; i++) {
+         int size = 2 + random.nextInt(9);
+         int[][] grid = randomGrid(size, random);
+         BaselineBoard expected = new BaselineBoard(grid, 0, new Random(i));
+         Board actual = makeBoard(grid, 0, new Random(i));
+         for (int turn = 0; turn < 6; turn++) {
+            boolean clockwise = random.nextBoolean();
+            expected.rotate(clockwise);
+            actual.rotate(clockwise);
+            assertSameBoard(expected, actual, "rotation " + turn);
+            // moves after a rotation see the rotated board
+            Direction direction = DIRECTIONS[random.nextInt(4)];
+            assertEquals(expected.move(direction), actual.move(direction));
+            assertSameBoard(expected, actual, "move " + direction);
+         }
+      }
+   }
+
+   /*
+    * Name: playGame
+    * Purpose: play a seeded random game on both boards, comparing them
+    *    after every move
+    * Parameters: size (int) - width of the board;
+    *    seed (long) - seed of the game;
+    *    steps (int) - most moves to try
+    * Return: void
+    */
+   private static void playGame(int size, long seed, int steps) {
+      BaselineBoard expected = new BaselineBoard(size, new Random(seed));
+      Board actual = new Board(size, new Random(seed));
+      Random moves = new Random(~seed);
+      assertSameBoard(expected, actual, "start of game " + seed);
+      for (int step = 0; step < steps && !expected.isGameOver(); step++) {
+         Direction direction = DIRECTIONS[moves.nextInt(4)];
+         String context = size + "x" + size + " game " + seed + " step " +
+            step + " " + direction;
+         boolean moved = expected.move(direction);
+         assertEquals(moved, actual.move(direction), context);
+         if (moved) {
+            expected.addRandomTile();
+            actual.addRandomTile();
+         }
+         assertSameBoard(expected, actual, context);
+      }
+      assertEquals(expected.isGameOver(), actual.isGameOver());
+   }
+
+   // Return a grid of small tiles, about half of them empty
+   static int[][] randomGrid(int size, Random random) {
+      int[][] grid = new int[size][size];
+      for (int[] row : grid) {
+         for (int col = 0; col < size; col++) {
+            row[col] = random.nextBoolean() ? 0 : 2 << random.nextInt(4);
+         }
+      }
+      return grid;
+   }
+
+   // Return a Board holding a grid of tile values
+   static Board makeBoard(int[][] grid, int score, Random random) {
+      int size = grid.length;
+      byte[] cells = new byte[size * size];
+      for (int row = 0; row < size; row++) {
+         for (int col = 0; col < size; col++) {
+            int value = grid[row][col];
+            cells[row * size + col] = (byte) (value == 0 ? 0 :
+                  Integer.numberOfTrailingZeros(value));
+         }
+      }
+      return new Board(new BoardFile(size, score, cells), random);
+   }
+
+   // Check that the AI picks a legal move for a board that doesn't fit a
+   // BitBoard, from the Board itself
+   private static void assertFallback(Board board) {
+      Direction best = new Expectimax(10).bestMove(board, 2);
+      assertNotNull(best);
+      assertTrue(board.canMove(best), best.toString());
+      assertEquals(Expectimax.greedyMove(board.snapshot()), best);
+   }
+
+   // Check that a BitBoard has the same tiles, score and moves as the
+   // baseline
+   private static void assertSameBitBoard(BaselineBoard expected,
+         BitBoard actual, String context) {
+      assertArrayEquals(expected.getGrid(), actual.getGrid(),
+            context + ": expected\n" + expected + "but was\n" + actual);
+      assertEquals(expected.getScore(), actual.getScore(), context);
+      for (Direction direction : DIRECTIONS) {
+         assertEquals(expected.canMove(direction), actual.canMove(direction),
+               context + ": canMove " + direction);
+      }
+      assertEquals(expected.isGameOver(), actual.isGameOver(), context);
+      assertEquals(expected.canUndo(), actual.canUndo(), context);
+   }
+
+   // Check that a board has the same tiles and score as the baseline
+   static void assertSameBoard(BaselineBoard expected, Board actual,
+         String context) {
+      int[][] grid = expected.getGrid();
+      for (int row = 0; row < grid.length; row++) {
+         for (int col = 0; col < grid.length; col++) {
+            if (grid[row][col] != actual.getTile(row, col)) {
+               fail(context + ": tile " + row + "," + col + " expected\n" +
+                     expected + "but was\n" + actual);
+            }
+         }
+      }
+      assertEquals(expected.getScore(), actual.getScore(), context);
+      for (Direction direction : DIRECTIONS) {
+         assertEquals(expected.canMove(direction), actual.canMove(direction),
+               context + ": canMove " + direction);
+      }
+      assertEquals(expected.isGameOver(), actual.isGameOver(), context);
+   }
+}
@@ -0,0 +1,120 @@
+/**
+ * File: BoardFileTest.java
+ * Round-trips boards through the binary save format, small enough to be
+ * read and large enough to be mapped, checks that the old text format
+ * still loads, and that broken files are rejected with an IOException.
+ *
+ **/
+
+package game2048;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.file.*;
+import java.util.*;
+
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BoardFileTest {
+
+   @TempDir
+   Path directory;
+
+   @Test
+   void binaryRoundTrips() throws IOException {
+      Random random = new Random(1);
+      // 1100x1100 is past the size BoardFile starts mapping files at
+      for (int size : new int[] {2, 4, 9, 64, 1100}) {
+         byte[] cells = new byte[size * size];
+         for (int i = 0; i < cells.length; i++) {
+            cells[i] = (byte) random.nextInt(31);
+         }
+         Path path = this.directory.resolve(size + ".board");
+         new BoardFile(size, 12345 + size, cells).write(path.toString());
+         assertEquals(16 + cells.length, Files.size(path));
+
+         BoardFile file = BoardFile.read(path.toString());
+         assertEquals(size, file.size);
+         assertEquals(12345 + size, file.score);
+         assertArrayEquals(cells, file.cells);
+         assertTrue(Board.isInputFileCorrectFormat(path.toString()));
+
+         // nothing keeps the file open or mapped once it is loaded
+         Path moved = this.directory.resolve(size + ".moved");
+         Files.move(path, moved, StandardCopyOption.ATOMIC_MOVE);
+         Files.delete(moved);
+      }
+   }
+
+   @Test
+   void boardSavesAndLoads() throws IOException {
+      Board board = new Board(6, new Random(2));
+      for (int i = 0; i < 20; i++) {
+         for (Direction direction : Direction.values()) {
+            if (board.move(direction)) {
+               board.addRandomTile();
+            }
+         }
+      }
+      Path path = this.directory.resolve("board");
+      board.saveBoard(path.toString());
+      Board loaded = new Board(path.toString(), new Random(3));
+      assertEquals(board.getScore(), loaded.getScore());
+      assertArrayEquals(board.getGrid(), loaded.getGrid());
+   }
+
+   @Test
+   void textFormatLoads() throws IOException {
+      Path path = this.directory.resolve("text.board");
+      Files.writeString(path, "3\n40\n2 0 4 \n0 8 0 \n1024 0 2 \n");
+      BoardFile file = BoardFile.read(path.toString());
+      assertEquals(3, file.size);
+      assertEquals(40, file.score);
+      assertArrayEquals(new byte[] {1, 0, 2, 0, 3, 0, 10, 0, 1}, file.cells);
+      assertTrue(Board.isInputFileCorrectFormat(path.toString()));
+   }
+
+   @Test
+   void brokenFilesAreRejected() throws IOException {
+      String[] texts = {
+         "",
+         "2\n0\n2 4 8\n",
+         "2\n0\n2 3 4 8\n",
+         "1\n0\n2\n",
+         "2\n-1\n2 4 8 16\n",
+         "two\n0\n2 4 8 16\n",
+      };
+      for (int i = 0; i < texts.length; i++) {
+         Path path = this.directory.resolve("text" + i);
+         Files.writeString(path, texts[i]);
+         assertRejected(path);
+      }
+
+      byte[] cells = new byte[16];
+      Path path = this.directory.resolve("binary");
+      new BoardFile(4, 0, cells).write(path.toString());
+      byte[] good = Files.readAllBytes(path);
+
+      // cut off, with bytes after the tiles, a newer version, a bad tile
+      Files.write(path, Arrays.copyOf(good, good.length - 1));
+      assertRejected(path);
+      Files.write(path, Arrays.copyOf(good, good.length + 1));
+      assertRejected(path);
+      Files.write(path, ByteBuffer.wrap(good.clone()).putInt(4, 2).array());
+      assertRejected(path);
+      byte[] badTile = good.clone();
+      badTile[20] = 31;
+      Files.write(path, badTile);
+      assertRejected(path);
+   }
+
+   // Check that a file neither loads nor passes the format check
+   private static void assertRejected(Path path) {
+      assertThrows(IOException.class, () -> BoardFile.read(path.toString()),
+            path.toString());
+      assertFalse(Board.isInputFileCorrectFormat(path.toString()));
+   }
+}
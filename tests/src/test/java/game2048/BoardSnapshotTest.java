@@ -0,0 +1,108 @@
+/**
+ * File: BoardSnapshotTest.java
+ * Checks that a snapshot never changes once taken, whatever the board it
+ * shares its tiles with does next, and that BoardSnapshot.apply moves the
+ * same way Board.move does.
+ *
+ **/
+
+package game2048;
+
+import java.util.*;
+
+import org.junit.jupiter.api.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BoardSnapshotTest {
+
+   private static final Direction[] DIRECTIONS = Direction.values();
+
+   @Test
+   void snapshotsDontChange() {
+      Random choices = new Random(29);
+      Board board = new Board(5, new Random(31));
+      List<BoardSnapshot> snapshots = new ArrayList<>();
+      List<int[][]> grids = new ArrayList<>();
+      for (int step = 0; step < 3000; step++) {
+         // a snapshot after most steps, so several often share one array
+         if (choices.nextInt(4) != 0) {
+            BoardSnapshot snapshot = board.snapshot();
+            snapshots.add(snapshot);
+            grids.add(snapshot.getGrid());
+         }
+         change(board, choices);
+      }
+      for (int i = 0; i < snapshots.size(); i++) {
+         assertArrayEquals(grids.get(i), snapshots.get(i).getGrid(),
+               "snapshot " + i);
+      }
+   }
+
+   @Test
+   void boardFromSnapshotLeavesItAlone() {
+      Random choices = new Random(37);
+      Board board = new Board(4, new Random(41));
+      for (int i = 0; i < 500; i++) {
+         BoardSnapshot snapshot = board.snapshot();
+         int[][] grid = snapshot.getGrid();
+         // shares the snapshot's tiles until its first change
+         Board copy = new Board(snapshot, new Random(i));
+         assertEquals(snapshot, copy.snapshot());
+         for (int step = 0; step < 5; step++) {
+            change(copy, choices);
+         }
+         assertArrayEquals(grid, snapshot.getGrid(), "snapshot " + i);
+         change(board, choices);
+      }
+   }
+
+   @Test
+   void applyMatchesMove() {
+      Random random = new Random(43);
+      for (int i = 0; i < 5000; i++) {
+         int size = 2 + random.nextInt(7);
+         int[][] grid = BoardDifferentialTest.randomGrid(size, random);
+         Board board = BoardDifferentialTest.makeBoard(grid, 10,
+               new Random(i));
+         BoardSnapshot before = board.snapshot();
+         for (Direction direction : DIRECTIONS) {
+            Board moved = new Board(board, new Random(i));
+            BoardSnapshot applied = before.apply(direction);
+            assertEquals(moved.move(direction), applied != before);
+            // equals also compares the hash, and the masks must agree
+            assertEquals(moved.snapshot(), applied);
+            for (Direction next : DIRECTIONS) {
+               assertEquals(moved.canMove(next), applied.canMove(next));
+            }
+         }
+         assertArrayEquals(grid, before.getGrid());
+      }
+   }
+
+   // Change a board in place with a random move, rotation, undo, redo,
+   // copy or new game
+   private static void change(Board board, Random choices) {
+      int choice = choices.nextInt(20);
+      if (choice < 12) {
+         if (board.move(DIRECTIONS[choices.nextInt(4)])) {
+            board.addRandomTile();
+         }
+      }
+      else if (choice < 14) {
+         board.rotate(choices.nextBoolean());
+      }
+      else if (choice < 16) {
+         board.undo();
+      }
+      else if (choice < 18) {
+         board.redo();
+      }
+      else if (choice == 18) {
+         board.copyFrom(new Board(board.GRID_SIZE, new Random(choice)));
+      }
+      else {
+         board.newGame();
+      }
+   }
+}
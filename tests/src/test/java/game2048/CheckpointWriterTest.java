@@ -0,0 +1,77 @@
+/**
+ * File: CheckpointWriterTest.java
+ * Checks that a CheckpointWriter given many saves in a row, which it
+ * coalesces, leaves the last one in its file once closed, loadable by
+ * BoardFile, over whatever was saved there before, and no temporary files
+ * next to it.
+ *
+ **/
+
+package game2048;
+
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+import java.util.stream.*;
+
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CheckpointWriterTest {
+
+   private static final Direction[] DIRECTIONS = Direction.values();
+
+   @TempDir
+   Path directory;
+
+   @Test
+   void closeLeavesTheLastSave() throws IOException {
+      Path target = this.directory.resolve("game.board");
+      Random choices = new Random(83);
+      for (int size : new int[] {4, 300}) {
+         Board board = new Board(size, new Random(size));
+         CheckpointWriter writer = new CheckpointWriter(target.toString());
+         BoardSnapshot last = null;
+         for (int save = 0; save < 200; save++) {
+            if (board.move(DIRECTIONS[choices.nextInt(4)])) {
+               board.addRandomTile();
+            }
+            if (board.isGameOver()) {
+               board.newGame();
+            }
+            last = board.snapshot();
+            writer.save(last);
+         }
+         // the last save is usually still pending when close is called
+         writer.close();
+         // each write forces a file to disk, far slower than a save, so
+         // saves made while one is written are coalesced
+         assertTrue(writer.getWritten() >= 1 && writer.getWritten() < 200,
+               writer.getWritten() + " snapshots written");
+
+         BoardFile file = BoardFile.read(target.toString());
+         assertEquals(size, file.size);
+         assertEquals(last.getScore(), file.score);
+         assertArrayEquals(last.cells, file.cells, size + "x" + size);
+         assertEquals(List.of(target), files());
+      }
+   }
+
+   @Test
+   void closeWithoutSavesWritesNothing() throws IOException {
+      Path target = this.directory.resolve("game.board");
+      CheckpointWriter writer = new CheckpointWriter(target.toString());
+      writer.close();
+      assertEquals(0, writer.getWritten());
+      assertEquals(List.of(), files());
+   }
+
+   // Return every file in the directory
+   private List<Path> files() throws IOException {
+      try (Stream<Path> files = Files.list(this.directory)) {
+         return files.collect(Collectors.toList());
+      }
+   }
+}
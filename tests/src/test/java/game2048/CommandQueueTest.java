@@ -0,0 +1,110 @@
+/**
+ * File: CommandQueueTest.java
+ * Checks that a CommandQueue hands commands over in the order they were
+ * offered, on one thread and across two, that it drops only repeated
+ * repeatable commands, and that a full queue refuses commands until one
+ * is taken.
+ *
+ **/
+
+package game2048;
+
+import java.util.*;
+
+import org.junit.jupiter.api.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CommandQueueTest {
+
+   // commands below this are coalesced, as moves are in GameLoop
+   private static final int REPEATABLE = 4;
+
+   @Test
+   void commandsComeOutInOrder() {
+      CommandQueue queue = new CommandQueue(16, REPEATABLE);
+      byte[] commands = {0, 1, 2, 3, GameLoop.UNDO, 2, GameLoop.SAVE, 0};
+      for (byte command : commands) {
+         assertTrue(queue.offer(command));
+      }
+      for (byte command : commands) {
+         assertEquals(command, queue.poll());
+      }
+      assertEquals(-1, queue.poll());
+   }
+
+   @Test
+   void onlyRepeatableCommandsCoalesce() {
+      CommandQueue queue = new CommandQueue(16, REPEATABLE);
+      byte[] offered = {2, 2, 2, GameLoop.UNDO, GameLoop.UNDO, 1, 1,
+         GameLoop.REDO, GameLoop.REDO, GameLoop.ROTATE, GameLoop.ROTATE,
+         GameLoop.SAVE, GameLoop.SAVE, 1};
+      byte[] queued = {2, GameLoop.UNDO, GameLoop.UNDO, 1, GameLoop.REDO,
+         GameLoop.REDO, GameLoop.ROTATE, GameLoop.ROTATE, GameLoop.SAVE,
+         GameLoop.SAVE, 1};
+      for (byte command : offered) {
+         assertTrue(queue.offer(command));
+      }
+      for (byte command : queued) {
+         assertEquals(command, queue.poll());
+      }
+      assertEquals(-1, queue.poll());
+
+      // a move the same as one already taken is queued again
+      assertTrue(queue.offer((byte) 1));
+      assertEquals(1, queue.poll());
+   }
+
+   @Test
+   void fullQueueRefusesCommands() {
+      CommandQueue queue = new CommandQueue(5, REPEATABLE);
+      // rounded up to 8
+      for (int i = 0; i < 8; i++) {
+         assertTrue(queue.offer((byte) (i % 2)), "command " + i);
+      }
+      assertFalse(queue.offer(GameLoop.UNDO));
+      // a repeat of the newest move is still taken as coalesced
+      assertTrue(queue.offer((byte) 1));
+
+      assertEquals(0, queue.poll());
+      assertTrue(queue.offer(GameLoop.UNDO));
+      assertFalse(queue.offer(GameLoop.UNDO));
+      for (int i = 1; i < 8; i++) {
+         assertEquals(i % 2, queue.poll());
+      }
+      assertEquals(GameLoop.UNDO, queue.poll());
+      assertEquals(-1, queue.poll());
+   }
+
+   @Test
+   void commandsCrossThreadsInOrder() throws InterruptedException {
+      int total = 200000;
+      CommandQueue queue = new CommandQueue(16, REPEATABLE);
+      // none repeatable, so every command offered has to come out; the
+      // threads yield rather than spin, in case they share one core
+      int[] taken = new int[total];
+      Thread consumer = new Thread(() -> {
+         for (int i = 0; i < total; ) {
+            int command = queue.poll();
+            if (command >= 0) {
+               taken[i++] = command;
+            }
+            else {
+               Thread.yield();
+            }
+         }
+      });
+      consumer.start();
+      for (int i = 0; i < total; i++) {
+         byte command = (byte) (REPEATABLE + i % 100);
+         while (!queue.offer(command)) {
+            Thread.yield();
+         }
+      }
+      consumer.join(60000);
+      assertFalse(consumer.isAlive());
+      for (int i = 0; i < total; i++) {
+         assertEquals(REPEATABLE + i % 100, taken[i], "command " + i);
+      }
+   }
+}
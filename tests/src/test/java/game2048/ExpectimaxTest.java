@@ -0,0 +1,118 @@
+/**
+ * File: ExpectimaxTest.java
+ * Checks that Expectimax only picks moves the board can make and none on
+ * a board that is game over, that its transposition table keeps the
+ * deeper of two entries for the same slot, and that reusing the table
+ * from search to search gives the same moves as clearing it first.
+ *
+ **/
+
+package game2048;
+
+import java.util.*;
+
+import org.junit.jupiter.api.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ExpectimaxTest {
+
+   private static final Direction[] DIRECTIONS = Direction.values();
+
+   @Test
+   void picksLegalMoves() {
+      Random random = new Random(89);
+      Expectimax expectimax = new Expectimax(12);
+      for (int i = 0; i < 300; i++) {
+         int[][] grid = new int[4][4];
+         for (int[] row : grid) {
+            for (int col = 0; col < 4; col++) {
+               // mostly full, so many boards allow only one or two moves
+               row[col] = random.nextInt(6) == 0 ? 0 : 2 << random.nextInt(8);
+            }
+         }
+         Board board = BoardDifferentialTest.makeBoard(grid, 0, random);
+         for (int depth = 1; depth <= 3; depth++) {
+            Direction best = expectimax.bestMove(board, depth);
+            if (board.isGameOver()) {
+               assertNull(best, "board " + i + "\n" + board);
+            }
+            else {
+               assertNotNull(best, "board " + i + "\n" + board);
+               assertTrue(board.canMove(best),
+                     best + " on board " + i + "\n" + board);
+            }
+         }
+      }
+   }
+
+   @Test
+   void gameOverHasNoMove() {
+      int[][] grid = {
+         {2, 4, 2, 4},
+         {4, 2, 4, 2},
+         {2, 4, 2, 4},
+         {4, 2, 4, 2}};
+      Board board = BoardDifferentialTest.makeBoard(grid, 0, new Random(1));
+      assertTrue(board.isGameOver());
+      Expectimax expectimax = new Expectimax(8);
+      assertNull(expectimax.bestMove(board, 3));
+      assertNull(expectimax.bestMove(BitBoard.pack(grid), 3, 90));
+
+      // nor does one that doesn't fit a BitBoard
+      grid[0][0] = 1 << 16;
+      assertNull(expectimax.bestMove(
+               BoardDifferentialTest.makeBoard(grid, 0, new Random(1)), 3));
+   }
+
+   @Test
+   void tableKeepsTheDeeperEntry() {
+      // a table of one slot, so every board goes in the same one
+      Expectimax expectimax = new Expectimax(0);
+      long first = BitBoard.pack(new int[][] {
+         {2, 0, 0, 0}, {0, 0, 0, 0}, {0, 0, 0, 0}, {0, 0, 0, 0}});
+      long second = BitBoard.pack(new int[][] {
+         {4, 0, 0, 0}, {0, 0, 0, 0}, {0, 0, 0, 0}, {0, 0, 0, 0}});
+
+      expectimax.store(first, 3, 1f);
+      assertEquals(3, expectimax.storedDepth(first));
+      expectimax.store(second, 2, 2f);
+      assertEquals(3, expectimax.storedDepth(first), "shallower replaced it");
+      assertEquals(0, expectimax.storedDepth(second));
+      expectimax.store(second, 3, 2f);
+      assertEquals(3, expectimax.storedDepth(second), "as deep didn't");
+      assertEquals(0, expectimax.storedDepth(first));
+      expectimax.store(first, 5, 1f);
+      assertEquals(5, expectimax.storedDepth(first), "deeper didn't");
+
+      // a new search ignores the entry and lets anything replace it
+      expectimax.bestMove(second, 1, 90);
+      assertEquals(0, expectimax.storedDepth(first));
+      expectimax.store(second, 1, 2f);
+      assertEquals(1, expectimax.storedDepth(second));
+
+      expectimax.clear();
+      assertEquals(0, expectimax.storedDepth(second));
+   }
+
+   @Test
+   void reusedTableGivesTheSameMoves() {
+      Expectimax reused = new Expectimax(16);
+      Expectimax cleared = new Expectimax(16);
+      Board board = new Board(4, new Random(97));
+      // past 256 searches, so the search count wraps around
+      for (int move = 0; move < 300; move++) {
+         // a deeper search of the same board first leaves entries of
+         // every board the shallower one looks at
+         reused.bestMove(board, 3);
+         cleared.clear();
+         Direction best = reused.bestMove(board, 2);
+         assertEquals(cleared.bestMove(board, 2), best, "move " + move);
+         board.move(best);
+         board.addRandomTile();
+         if (board.isGameOver()) {
+            board.newGame();
+         }
+      }
+   }
+}
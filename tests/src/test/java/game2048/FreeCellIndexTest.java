@@ -0,0 +1,90 @@
+/**
+ * File: FreeCellIndexTest.java
+ * Checks FreeCellIndex against a plain array of empty flags: after every
+ * change, its count and the tile select finds for each rank have to be
+ * the ones a row-major scan of the flags gives.
+ *
+ **/
+
+package game2048;
+
+import java.util.*;
+
+import org.junit.jupiter.api.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FreeCellIndexTest {
+
+   @Test
+   void setMatchesScan() {
+      Random random = new Random(1);
+      for (int cells : new int[] {1, 4, 63, 64, 65, 100, 1000, 4096}) {
+         FreeCellIndex index = new FreeCellIndex(cells);
+         boolean[] free = new boolean[cells];
+         for (int i = 0; i < 2000; i++) {
+            int cell = random.nextInt(cells);
+            boolean value = random.nextBoolean();
+            index.set(cell, value);
+            free[cell] = value;
+            assertMatches(free, index, cells + " tiles, change " + i);
+         }
+      }
+   }
+
+   @Test
+   void putAndRecountMatchScan() {
+      Random random = new Random(2);
+      for (int cells : new int[] {1, 9, 64, 130, 4096}) {
+         FreeCellIndex index = new FreeCellIndex(cells);
+         boolean[] free = new boolean[cells];
+         for (int round = 0; round < 20; round++) {
+            for (int cell = 0; cell < cells; cell++) {
+               free[cell] = random.nextInt(4) == 0;
+               index.put(cell, free[cell]);
+            }
+            index.recount();
+            assertMatches(free, index, cells + " tiles, round " + round);
+         }
+      }
+   }
+
+   @Test
+   void putWordAndCopyMatchScan() {
+      Random random = new Random(3);
+      int cells = 300;
+      byte[] exponents = new byte[cells];
+      boolean[] free = new boolean[cells];
+      for (int cell = 0; cell < cells; cell++) {
+         exponents[cell] = (byte) random.nextInt(3);
+         free[cell] = exponents[cell] == 0;
+      }
+      FreeCellIndex index = new FreeCellIndex(cells);
+      for (int word = 0; word < index.wordCount(); word++) {
+         index.putWord(word, exponents);
+      }
+      index.recount();
+      assertMatches(free, index, "putWord");
+
+      FreeCellIndex copy = new FreeCellIndex(cells);
+      copy.copyFrom(index);
+      assertMatches(free, copy, "copy");
+      // the copy is separate from the index it was copied from
+      index.set(0, !free[0]);
+      assertMatches(free, copy, "copy after the original changed");
+   }
+
+   // Check the count, isFree and every select of an index against flags
+   private static void assertMatches(boolean[] free, FreeCellIndex index,
+         String context) {
+      int rank = 0;
+      for (int cell = 0; cell < free.length; cell++) {
+         assertEquals(free[cell], index.isFree(cell), context);
+         if (free[cell]) {
+            assertEquals(cell, index.select(rank), context + ", rank " + rank);
+            rank++;
+         }
+      }
+      assertEquals(rank, index.count(), context);
+   }
+}
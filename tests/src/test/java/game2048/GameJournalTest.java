@@ -0,0 +1,172 @@
+/**
+ * File: GameJournalTest.java
+ * Journals seeded random games of moves, rotations, undos and redos, and
+ * checks that Replay rebuilds the board after every operation, seeking in
+ * any order and across keyframes. Also checks that JournalRandom follows
+ * java.util.Random and picks its sequence up again from a saved state,
+ * and that a journal is never written over an existing file.
+ *
+ **/
+
+package game2048;
+
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GameJournalTest {
+
+   private static final Direction[] DIRECTIONS = Direction.values();
+
+   @TempDir
+   Path directory;
+
+   @Test
+   void journalRandomMatchesRandom() {
+      for (long seed = 0; seed < 20; seed++) {
+         Random expected = new Random(seed);
+         JournalRandom actual = new JournalRandom(seed);
+         for (int i = 0; i < 1000; i++) {
+            assertEquals(expected.nextInt(100), actual.nextInt(100));
+            assertEquals(expected.nextLong(), actual.nextLong());
+         }
+      }
+   }
+
+   @Test
+   void journalRandomRestoresState() {
+      JournalRandom random = new JournalRandom(7);
+      random.nextInt();
+      long state = random.getState();
+      int[] expected = new int[100];
+      for (int i = 0; i < expected.length; i++) {
+         expected[i] = random.nextInt(1000);
+      }
+      JournalRandom restored = new JournalRandom(0);
+      restored.setState(state);
+      for (int value : expected) {
+         assertEquals(value, restored.nextInt(1000));
+      }
+   }
+
+   @Test
+   void replayRebuildsEveryPosition() throws IOException {
+      for (long seed = 0; seed < 3; seed++) {
+         checkGame(5 + (int) seed, seed, 3000);
+      }
+   }
+
+   @Test
+   void replayRejectsBrokenJournals() throws IOException {
+      Path path = this.directory.resolve("broken.journal");
+      Files.write(path, new byte[] {1, 2, 3});
+      assertThrows(IOException.class, () -> new Replay(path.toString()));
+
+      // a journal that undoes before anything was done
+      Path undo = this.directory.resolve("undo.journal");
+      JournalRandom random = new JournalRandom(1);
+      Board board = new Board(4, random);
+      try (GameJournal journal = new GameJournal(undo.toString(), board,
+               random)) {
+         journal.recordUndo();
+      }
+      assertThrows(IOException.class, () -> new Replay(undo.toString()));
+   }
+
+   @Test
+   void journalsAreNeverOverwritten() throws IOException {
+      Path path = this.directory.resolve("game.journal");
+      JournalRandom random = new JournalRandom(2);
+      Board board = new Board(4, random);
+      try (GameJournal journal = new GameJournal(path.toString(), board,
+               random)) {
+         journal.recordRotate(true);
+      }
+      byte[] written = Files.readAllBytes(path);
+
+      assertThrows(FileAlreadyExistsException.class,
+            () -> new GameJournal(path.toString(), new Board(4, random),
+               random));
+      assertArrayEquals(written, Files.readAllBytes(path));
+   }
+
+   /*
+    * Name: checkGame
+    * Purpose: journal a seeded random game, keeping a snapshot after each
+    *    operation, then seek a Replay of it to every position
+    * Parameters: size (int) - width of the board;
+    *    seed (long) - seed of the game;
+    *    operations (int) - operations to play
+    * Return: void
+    */
+   private void checkGame(int size, long seed, int operations)
+      throws IOException {
+      Path path = this.directory.resolve("game" + seed + ".journal");
+      JournalRandom random = new JournalRandom(seed);
+      Board board = new Board(size, random);
+      Random choices = new Random(~seed);
+      List<BoardSnapshot> positions = new ArrayList<>();
+      positions.add(board.snapshot());
+
+      try (GameJournal journal = new GameJournal(path.toString(), board,
+               random)) {
+         while (positions.size() <= operations) {
+            int choice = choices.nextInt(10);
+            Direction direction = DIRECTIONS[choices.nextInt(4)];
+            if (choice < 6 && board.move(direction)) {
+               board.addRandomTile();
+               journal.recordMove(direction);
+            }
+            else if (choice == 6) {
+               boolean clockwise = choices.nextBoolean();
+               board.rotate(clockwise);
+               journal.recordRotate(clockwise);
+            }
+            else if (choice < 9 && board.canUndo()) {
+               board.undo();
+               journal.recordUndo();
+            }
+            else if (choice == 9 && board.canRedo()) {
+               board.redo();
+               journal.recordRedo();
+            }
+            else {
+               continue;
+            }
+            positions.add(board.snapshot());
+         }
+         assertFalse(journal.checkError());
+      }
+
+      Replay replay = new Replay(path.toString());
+      assertEquals(operations, replay.length());
+      // in shuffled order, so seeks start from keyframes taken by others
+      List<Integer> order = new ArrayList<>();
+      for (int i = 0; i <= operations; i++) {
+         order.add(i);
+      }
+      Collections.shuffle(order, new Random(seed));
+      for (int position : order) {
+         assertEquals(positions.get(position),
+               replay.seek(position).snapshot(),
+               "seed " + seed + " position " + position);
+      }
+
+      // the replayed board draws the game's next tiles
+      Board end = replay.seek(operations);
+      for (Direction direction : DIRECTIONS) {
+         if (board.move(direction)) {
+            board.addRandomTile();
+            assertTrue(end.move(direction));
+            end.addRandomTile();
+            assertEquals(board, end);
+            break;
+         }
+      }
+   }
+}
@@ -0,0 +1,91 @@
+/**
+ * File: HintSearchTest.java
+ * Checks that a cancelled hint search passes on no more hints once cancel
+ * returns, and that a cancelled Expectimax search stops inside the depth
+ * it is in instead of finishing it.
+ *
+ **/
+
+package game2048;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+import org.junit.jupiter.api.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HintSearchTest {
+
+   private static final int[][] GRID = {
+      {2, 4, 8, 16},
+      {0, 2, 4, 8},
+      {0, 0, 2, 4},
+      {0, 0, 0, 2}};
+
+   @Test
+   void noHintsAfterCancel() throws InterruptedException {
+      HintSearch search = new HintSearch(60_000);
+      Board board = BoardDifferentialTest.makeBoard(GRID, 0, new Random(3));
+      for (int i = 0; i < 50; i++) {
+         AtomicInteger hints = new AtomicInteger();
+         CountDownLatch first = new CountDownLatch(1);
+         search.start(board, direction -> {
+            hints.incrementAndGet();
+            first.countDown();
+         });
+         // cancel some searches before their first hint, some after
+         if (i % 2 == 0) {
+            assertTrue(first.await(10, TimeUnit.SECONDS), "search " + i);
+         }
+         search.cancel();
+         int passedOn = hints.get();
+         Thread.sleep(20);
+         assertEquals(passedOn, hints.get(), "hint after cancel " + i);
+      }
+   }
+
+   @Test
+   void nextSearchIsNotKeptWaiting() throws InterruptedException {
+      HintSearch search = new HintSearch(60_000);
+      Board board = BoardDifferentialTest.makeBoard(GRID, 0, new Random(5));
+      CountDownLatch deep = new CountDownLatch(4);
+      search.start(board, direction -> deep.countDown());
+      // by depth 5 each depth takes a while, and is what cancel interrupts
+      assertTrue(deep.await(30, TimeUnit.SECONDS));
+      search.cancel();
+
+      board.move(Direction.LEFT);
+      CountDownLatch next = new CountDownLatch(1);
+      search.start(board, direction -> next.countDown());
+      assertTrue(next.await(10, TimeUnit.SECONDS));
+      search.cancel();
+   }
+
+   @Test
+   void cancelStopsExpectimaxMidDepth() throws Exception {
+      long bits = BitBoard.pack(new int[][] {
+         {2, 4, 2, 4},
+         {8, 16, 32, 64},
+         {2, 4, 8, 2},
+         {0, 0, 2, 4}});
+      AtomicBoolean cancelled = new AtomicBoolean();
+      Expectimax expectimax = new Expectimax(18);
+      ExecutorService executor = Executors.newSingleThreadExecutor();
+      try {
+         // depth 24 of this board takes several seconds
+         Future<Direction> best = executor.submit(() ->
+               expectimax.bestMove(bits, 24, 90, cancelled));
+         Thread.sleep(50);
+         cancelled.set(true);
+         assertNull(best.get(1, TimeUnit.SECONDS));
+      }
+      finally {
+         executor.shutdownNow();
+      }
+
+      // a search that isn't cancelled still finds a move afterwards
+      assertNotNull(expectimax.bestMove(bits, 2, 90));
+   }
+}
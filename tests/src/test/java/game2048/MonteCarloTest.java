@@ -0,0 +1,124 @@
+/**
+ * File: MonteCarloTest.java
+ * Checks that MonteCarlo only picks moves the board can make, leaves the
+ * board it searches alone, keeps to its time budget, and that the copies
+ * its rollouts play on are independent of the board they were made from.
+ *
+ **/
+
+package game2048;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+import org.junit.jupiter.api.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MonteCarloTest {
+
+   private static final Direction[] DIRECTIONS = Direction.values();
+
+   private static ForkJoinPool pool;
+
+   @BeforeAll
+   static void startPool() {
+      pool = new ForkJoinPool(2);
+   }
+
+   @AfterAll
+   static void stopPool() {
+      pool.shutdownNow();
+   }
+
+   @Test
+   void picksLegalMoves() {
+      Random random = new Random(97);
+      MonteCarlo monteCarlo = new MonteCarlo(pool);
+      for (int i = 0; i < 100; i++) {
+         Board board = BoardDifferentialTest.makeBoard(
+               denseGrid(4 + i % 3, random), 0, random);
+         int[][] grid = board.getGrid();
+         long hash = board.zobristHash();
+
+         Direction best = monteCarlo.bestMove(board, 5);
+         if (board.isGameOver()) {
+            assertNull(best, "board " + i + "\n" + board);
+         }
+         else {
+            assertNotNull(best, "board " + i + "\n" + board);
+            assertTrue(board.canMove(best),
+                  best + " on board " + i + "\n" + board);
+         }
+         assertArrayEquals(grid, board.getGrid(), "board " + i);
+         assertEquals(hash, board.zobristHash(), "board " + i);
+      }
+   }
+
+   @Test
+   void keepsToTheBudget() {
+      MonteCarlo monteCarlo = new MonteCarlo(pool);
+      // games on a board this big last far longer than the budget
+      Board board = BoardDifferentialTest.makeBoard(
+            BoardDifferentialTest.randomGrid(64, new Random(13)), 0,
+            new Random(13));
+      for (long budget : new long[] {1, 50, 200}) {
+         long started = System.nanoTime();
+         assertNotNull(monteCarlo.bestMove(board, budget));
+         long took = TimeUnit.NANOSECONDS.toMillis(
+               System.nanoTime() - started);
+         // each rollout checks the clock after every move, so it can only
+         // overrun by one move and the scheduling of the pool's threads
+         assertTrue(took < budget + 250,
+               took + " ms for a budget of " + budget + " ms");
+      }
+   }
+
+   @Test
+   void copiesAreIndependent() {
+      Random random = new Random(101);
+      for (int i = 0; i < 100; i++) {
+         int size = 3 + i % 6;
+         Board original = BoardDifferentialTest.makeBoard(
+               BoardDifferentialTest.randomGrid(size, random),
+               random.nextInt(1000), random);
+         int[][] grid = original.getGrid();
+         int score = original.getScore();
+         long hash = original.zobristHash();
+
+         Board copy = new Board(original, new Random(i));
+         assertArrayEquals(grid, copy.getGrid(), "copy " + i);
+         assertEquals(score, copy.getScore(), "copy " + i);
+         assertEquals(hash, copy.zobristHash(), "copy " + i);
+         for (int step = 0; step < 20 && !copy.isGameOver(); step++) {
+            copy.move(DIRECTIONS[random.nextInt(DIRECTIONS.length)]);
+         }
+         assertArrayEquals(grid, original.getGrid(), "original " + i);
+         assertEquals(score, original.getScore(), "original " + i);
+         assertEquals(hash, original.zobristHash(), "original " + i);
+
+         // and the other way round
+         int[][] copied = copy.getGrid();
+         int copiedScore = copy.getScore();
+         long copiedHash = copy.zobristHash();
+         for (int step = 0; step < 20 && !original.isGameOver(); step++) {
+            original.move(DIRECTIONS[random.nextInt(DIRECTIONS.length)]);
+         }
+         assertArrayEquals(copied, copy.getGrid(), "copy " + i);
+         assertEquals(copiedScore, copy.getScore(), "copy " + i);
+         assertEquals(copiedHash, copy.zobristHash(), "copy " + i);
+      }
+   }
+
+   // Return a grid that is mostly full, so many boards allow only one or
+   // two moves and some none
+   private static int[][] denseGrid(int size, Random random) {
+      int[][] grid = new int[size][size];
+      for (int[] row : grid) {
+         for (int col = 0; col < size; col++) {
+            row[col] = random.nextInt(8) == 0 ? 0 : 2 << random.nextInt(6);
+         }
+      }
+      return grid;
+   }
+}
@@ -0,0 +1,68 @@
+/**
+ * File: MoveAllocationTest.java
+ * Checks that moving a board, and adding the random tile after the move,
+ * allocates nothing once the JIT has compiled the move path: the board
+ * slides into a spare array it keeps, and the undo history records into
+ * buffers it allocates once.
+ *
+ **/
+
+package game2048;
+
+import java.lang.management.*;
+import java.util.*;
+
+import org.junit.jupiter.api.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MoveAllocationTest {
+
+   private static final Direction[] DIRECTIONS = Direction.values();
+
+   private static final int WARMUP_MOVES = 300_000;
+   private static final int MEASURED_MOVES = 100_000;
+
+   // reading the counter can itself allocate a few bytes
+   private static final long READ_SLACK = 256;
+
+   @Test
+   void movesDontAllocate() {
+      ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+      Assumptions.assumeTrue(
+            threads instanceof com.sun.management.ThreadMXBean,
+            "no per-thread allocation counter");
+      com.sun.management.ThreadMXBean counter =
+         (com.sun.management.ThreadMXBean) threads;
+      Assumptions.assumeTrue(counter.isThreadAllocatedMemorySupported());
+      counter.setThreadAllocatedMemoryEnabled(true);
+      long id = Thread.currentThread().getId();
+
+      for (int size : new int[] {4, 8, 32}) {
+         Board board = new Board(size, new Random(size));
+         play(board, WARMUP_MOVES);
+
+         long before = counter.getThreadAllocatedBytes(id);
+         play(board, MEASURED_MOVES);
+         long allocated = counter.getThreadAllocatedBytes(id) - before;
+         assertTrue(allocated <= READ_SLACK, size + "x" + size + " board: " +
+               allocated + " bytes allocated by " + MEASURED_MOVES + " moves");
+      }
+   }
+
+   // Make moves that change the board, starting a new game when it's over
+   private static void play(Board board, int moves) {
+      int next = 0;
+      for (int i = 0; i < moves; i++) {
+         if (board.isGameOver()) {
+            board.newGame();
+         }
+         while (!board.canMove(DIRECTIONS[next])) {
+            next = (next + 1) & 3;
+         }
+         board.move(DIRECTIONS[next]);
+         board.addRandomTile();
+         next = (next + 1) & 3;
+      }
+   }
+}
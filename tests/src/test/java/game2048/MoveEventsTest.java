@@ -0,0 +1,158 @@
+/**
+ * File: MoveEventsTest.java
+ * Checks that the events a Board records for a move are enough to get
+ * from the board before the move to the board after it, that only tiles
+ * that moved have events, that anything but a move clears them, and that
+ * boards sliding in parallel mark their events incomplete.
+ *
+ **/
+
+package game2048;
+
+import java.util.*;
+
+import org.junit.jupiter.api.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MoveEventsTest {
+
+   private static final Direction[] DIRECTIONS = Direction.values();
+
+   @Test
+   void eventsRebuildTheMove() {
+      for (int size = 2; size <= 8; size++) {
+         Random choices = new Random(size);
+         Board board = BoardDifferentialTest.makeBoard(
+               BoardDifferentialTest.randomGrid(size, choices), 0,
+               new Random(~size));
+         MoveEvents events = new MoveEvents();
+         board.setMoveEvents(events);
+         for (int step = 0; step < 2000; step++) {
+            int[][] before = board.getGrid();
+            Direction direction = DIRECTIONS[choices.nextInt(4)];
+            String context = size + "x" + size + " step " + step + " " +
+               direction;
+            if (!board.move(direction)) {
+               assertEquals(0, events.size(), context);
+               continue;
+            }
+            board.addRandomTile();
+            assertTrue(events.isComplete(), context);
+            assertArrayEquals(board.getGrid(), rebuild(before, events),
+                  context + " " + events);
+            if (board.isGameOver()) {
+               board.newGame();
+               assertEquals(0, events.size(), context);
+            }
+         }
+      }
+   }
+
+   @Test
+   void onlyMovesHaveEvents() {
+      Random choices = new Random(61);
+      Board board = new Board(4, new Random(67));
+      MoveEvents events = new MoveEvents();
+      board.setMoveEvents(events);
+      for (int step = 0; step < 1000; step++) {
+         if (board.move(DIRECTIONS[choices.nextInt(4)])) {
+            board.addRandomTile();
+         }
+         // an undo or redo with nothing to do changes nothing, and keeps
+         // the events of the move before it
+         int choice = choices.nextInt(4);
+         if (choice == 0) {
+            board.rotate(choices.nextBoolean());
+         }
+         else if (choice == 1 && board.canUndo()) {
+            board.undo();
+         }
+         else if (choice == 2 && board.canRedo()) {
+            board.redo();
+         }
+         else {
+            continue;
+         }
+         assertEquals(0, events.size(), "step " + step);
+         assertTrue(events.isComplete(), "step " + step);
+      }
+   }
+
+   @Test
+   void copiesKeepTheirEvents() {
+      Random choices = new Random(71);
+      Board board = new Board(4, new Random(73));
+      MoveEvents events = new MoveEvents();
+      board.setMoveEvents(events);
+      while (!board.move(DIRECTIONS[choices.nextInt(4)])) {
+         board.newGame();
+      }
+      board.addRandomTile();
+      MoveEvents copy = events.copy();
+      String recorded = events.toString();
+      assertEquals(recorded, copy.toString());
+
+      board.rotate(true);
+      assertEquals(recorded, copy.toString());
+      for (int step = 0; step < 50; step++) {
+         if (board.move(DIRECTIONS[choices.nextInt(4)])) {
+            board.addRandomTile();
+         }
+      }
+      assertEquals(recorded, copy.toString());
+
+      events.clear();
+      assertEquals(0, events.size());
+      assertTrue(events.isComplete());
+   }
+
+   @Test
+   void parallelMovesAreIncomplete() {
+      Random random = new Random(79);
+      int size = Board.PARALLEL_THRESHOLD;
+      Board board = BoardDifferentialTest.makeBoard(
+            BoardDifferentialTest.randomGrid(size, random), 0, random);
+      MoveEvents events = new MoveEvents();
+      board.setMoveEvents(events);
+      for (Direction direction : DIRECTIONS) {
+         if (board.move(direction)) {
+            assertFalse(events.isComplete(), direction.toString());
+            assertEquals(0, events.size(), direction.toString());
+            board.addRandomTile();
+            // the added tile is still recorded
+            assertEquals(1, events.size(), direction.toString());
+            assertEquals(MoveEvents.SPAWN, events.getKind(0));
+         }
+      }
+   }
+
+   /*
+    * Name: rebuild
+    * Purpose: apply a move's events to the grid from before it; every
+    *    tile that slid or merged leaves its cell before any lands, and
+    *    later events at a cell overwrite earlier ones
+    * Parameters: before (int[][]) - grid before the move;
+    *    events (MoveEvents) - events of the move
+    * Return: int[][] (the grid the events lead to)
+    */
+   private static int[][] rebuild(int[][] before, MoveEvents events) {
+      int size = before.length;
+      int[][] grid = new int[size][];
+      for (int row = 0; row < size; row++) {
+         grid[row] = before[row].clone();
+      }
+      for (int i = 0; i < events.size(); i++) {
+         if (events.getKind(i) != MoveEvents.SPAWN) {
+            assertNotEquals(events.getFrom(i), events.getTo(i),
+                  "tile that didn't move in " + events);
+            grid[events.getFrom(i) / size][events.getFrom(i) % size] = 0;
+         }
+      }
+      for (int i = 0; i < events.size(); i++) {
+         grid[events.getTo(i) / size][events.getTo(i) % size] =
+            events.getValue(i);
+      }
+      return grid;
+   }
+}
@@ -0,0 +1,60 @@
+/**
+ * File: SimulatorTest.java
+ * Checks that Simulator plays the same games for the same seed however
+ * many threads play them, since each game is seeded from its number.
+ *
+ **/
+
+package game2048;
+
+import java.io.*;
+import java.util.*;
+
+import org.junit.jupiter.api.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SimulatorTest {
+
+   private static final int GAMES = 300;
+
+   private PrintStream out;
+
+   // run prints a report; keep it out of the test output
+   @BeforeEach
+   void silence() {
+      this.out = System.out;
+      System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+   }
+
+   @AfterEach
+   void restore() {
+      System.setOut(this.out);
+   }
+
+   @Test
+   void gamesDontDependOnThreads() {
+      for (MovePolicy policy : new MovePolicy[] {MovePolicy.RANDOM,
+               MovePolicy.CORNER}) {
+         Simulator single = new Simulator(4, policy, 42);
+         single.run(GAMES, 1);
+         Simulator several = new Simulator(4, policy, 42);
+         several.run(GAMES, 4);
+         assertArrayEquals(single.getScores(), several.getScores());
+         assertArrayEquals(single.getMoves(), several.getMoves());
+         for (int moves : single.getMoves()) {
+            assertTrue(moves > 0);
+         }
+      }
+   }
+
+   @Test
+   void seedChangesGames() {
+      Simulator first = new Simulator(5, MovePolicy.RANDOM, 1);
+      first.run(GAMES, 2);
+      Simulator second = new Simulator(5, MovePolicy.RANDOM, 2);
+      second.run(GAMES, 2);
+      assertFalse(Arrays.equals(first.getScores(),
+               second.getScores()));
+   }
+}
@@ -0,0 +1,156 @@
+/**
+ * File: UndoHistoryTest.java
+ * Checks Board's undo and redo against a model that keeps a full copy of
+ * the board before every move, and against BaselineBoard's single undo,
+ * which rotations made after a move don't get in the way of.
+ *
+ **/
+
+package game2048;
+
+import java.util.*;
+
+import org.junit.jupiter.api.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UndoHistoryTest {
+
+   private static final Direction[] DIRECTIONS = Direction.values();
+
+   @Test
+   void singleUndoMatchesBaseline() {
+      Random random = new Random(19);
+      for (int i = 0; i < 2000; i++) {
+         int size = 2 + random.nextInt(6);
+         int[][] grid = BoardDifferentialTest.randomGrid(size, random);
+         BaselineBoard expected = new BaselineBoard(grid, 0, new Random(i));
+         Board actual = BoardDifferentialTest.makeBoard(grid, 0,
+               new Random(i));
+         for (int step = 0; step < 30; step++) {
+            int choice = random.nextInt(3);
+            String context = "board " + i + " step " + step;
+            if (choice == 0) {
+               Direction direction = DIRECTIONS[random.nextInt(4)];
+               if (expected.move(direction)) {
+                  assertTrue(actual.move(direction), context);
+                  expected.addRandomTile();
+                  actual.addRandomTile();
+               }
+            }
+            else if (choice == 1) {
+               boolean clockwise = random.nextBoolean();
+               expected.rotate(clockwise);
+               actual.rotate(clockwise);
+            }
+            else if (expected.canUndo()) {
+               assertTrue(actual.canUndo(), context);
+               expected.undo();
+               actual.undo();
+            }
+            BoardDifferentialTest.assertSameBoard(expected, actual, context);
+         }
+      }
+   }
+
+   @Test
+   void undoAndRedoMatchModel() {
+      for (int depth : new int[] {0, 1, 3, Board.DEFAULT_UNDO_DEPTH}) {
+         for (long seed = 0; seed < 30; seed++) {
+            checkModel(3 + (int) (seed % 4), depth, seed, 400);
+         }
+      }
+   }
+
+   @Test
+   void moveTooLargeForTheHistoryClearsIt() {
+      // the history keeps at most 2^24 bytes, about 3.3 million tiles, so
+      // a move that changes all 4 million tiles of a board can't be undone
+      int size = 2048;
+      int[][] grid = new int[size][size];
+      for (int[] row : grid) {
+         // sliding left moves every tile one place, and none merge
+         for (int col = 1; col < size; col++) {
+            row[col] = 2 << (col % 3);
+         }
+      }
+      Board board = BoardDifferentialTest.makeBoard(grid, 0, new Random(23));
+      assertTrue(board.move(Direction.LEFT));
+      board.addRandomTile();
+      assertFalse(board.canUndo());
+      board.undo();
+      assertTrue(board.canMove(Direction.RIGHT));
+   }
+
+   /*
+    * Name: checkModel
+    * Purpose: play random moves, rotations, undos and redos on a board
+    *    and on a model that keeps a snapshot before every move, checking
+    *    them against each other after each one
+    * Parameters: size (int) - width of the board;
+    *    depth (int) - undo depth of the board;
+    *    seed (long) - seed of the game;
+    *    steps (int) - operations to play
+    * Return: void
+    */
+   private static void checkModel(int size, int depth, long seed,
+         int steps) {
+      Random choices = new Random(seed);
+      Board board = new Board(size, new Random(~seed));
+      board.setUndoDepth(depth);
+      // boards before each move that can be undone, newest last, and
+      // boards undone from that can be redone
+      Deque<BoardSnapshot> undos = new ArrayDeque<>();
+      Deque<BoardSnapshot> redos = new ArrayDeque<>();
+
+      for (int step = 0; step < steps; step++) {
+         String context = "depth " + depth + " seed " + seed + " step " +
+            step;
+         int choice = choices.nextInt(10);
+         if (choice < 5) {
+            BoardSnapshot before = board.snapshot();
+            if (board.move(DIRECTIONS[choices.nextInt(4)])) {
+               board.addRandomTile();
+               undos.addLast(before);
+               if (undos.size() > depth) {
+                  undos.removeFirst();
+               }
+               redos.clear();
+            }
+         }
+         else if (choice == 5) {
+            board.rotate(choices.nextBoolean());
+            redos.clear();
+         }
+         else if (choice < 8) {
+            assertEquals(!undos.isEmpty(), board.canUndo(), context);
+            if (!undos.isEmpty()) {
+               redos.addLast(board.snapshot());
+               board.undo();
+               assertEquals(undos.removeLast(), board.snapshot(), context);
+            }
+         }
+         else {
+            assertEquals(!redos.isEmpty(), board.canRedo(), context);
+            if (!redos.isEmpty()) {
+               undos.addLast(board.snapshot());
+               board.redo();
+               assertEquals(redos.removeLast(), board.snapshot(), context);
+            }
+         }
+         assertConsistent(board, context);
+      }
+   }
+
+   // Check that the hash and move mask kept by a board match its tiles
+   private static void assertConsistent(Board board, String context) {
+      Board fresh = new Board(board.snapshot(), new Random());
+      // the snapshot shares the tiles; the constructor works the hash and
+      // mask out from them
+      assertEquals(fresh.zobristHash(), board.zobristHash(), context);
+      for (Direction direction : DIRECTIONS) {
+         assertEquals(fresh.canMove(direction), board.canMove(direction),
+               context + ": canMove " + direction);
+      }
+   }
+}
@@ -0,0 +1,138 @@
+/**
+ * File: ZobristHashTest.java
+ * Checks that the Zobrist hash a Board keeps up to date move by move is
+ * always the hash of its tiles worked out from scratch, on boards small
+ * enough to use the key table and larger ones, and on boards that hash
+ * their moves in parallel, and on snapshots moved with apply; and that
+ * different positions hash apart.
+ *
+ **/
+
+package game2048;
+
+import java.util.*;
+
+import org.junit.jupiter.api.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ZobristHashTest {
+
+   private static final Direction[] DIRECTIONS = Direction.values();
+
+   @Test
+   void incrementalHashMatchesRecomputed() {
+      for (int size = 2; size <= 9; size++) {
+         for (long seed = 0; seed < 10; seed++) {
+            checkGame(size, seed, 1000);
+         }
+      }
+   }
+
+   @Test
+   void parallelHashMatchesRecomputed() {
+      checkGame(Board.PARALLEL_THRESHOLD, 1, 30);
+   }
+
+   @Test
+   void samePositionSameHash() {
+      Random random = new Random(47);
+      for (int i = 0; i < 2000; i++) {
+         int[][] grid = BoardDifferentialTest.randomGrid(2 + random.nextInt(7),
+               random);
+         Board board = BoardDifferentialTest.makeBoard(grid, 0, random);
+         long hash = board.zobristHash();
+         assertEquals(hash, BoardDifferentialTest.makeBoard(grid, 50,
+                  random).zobristHash(), "the score isn't hashed");
+
+         for (int turn = 0; turn < 4; turn++) {
+            board.rotate(true);
+         }
+         assertEquals(hash, board.zobristHash(), "four turns");
+
+         Direction direction = DIRECTIONS[random.nextInt(4)];
+         if (board.move(direction)) {
+            board.addRandomTile();
+            board.undo();
+         }
+         assertEquals(hash, board.zobristHash(), "move and undo");
+      }
+   }
+
+   @Test
+   void differentPositionsHashApart() {
+      Random random = new Random(53);
+      Map<Long, String> seen = new HashMap<>();
+      for (int i = 0; i < 100000; i++) {
+         int size = 2 + random.nextInt(5);
+         byte[] cells = new byte[size * size];
+         for (int cell = 0; cell < cells.length; cell++) {
+            cells[cell] = (byte) random.nextInt(12);
+         }
+         // the size is part of the key, as the same cells on another
+         // width are another position
+         String position = size + Arrays.toString(cells);
+         String other = seen.put(Board.zobristHash(cells) ^ size, position);
+         assertTrue(other == null || other.equals(position),
+               position + " and " + other + " have the same hash");
+      }
+   }
+
+   @Test
+   void appliedSnapshotsMatchRecomputed() {
+      Random random = new Random(59);
+      for (int i = 0; i < 5000; i++) {
+         int size = 2 + random.nextInt(9);
+         BoardSnapshot snapshot = BoardDifferentialTest.makeBoard(
+               BoardDifferentialTest.randomGrid(size, random), 0,
+               random).snapshot();
+         for (Direction direction : DIRECTIONS) {
+            BoardSnapshot moved = snapshot.apply(direction);
+            assertEquals(Board.zobristHash(moved.cells), moved.zobristHash(),
+                  size + "x" + size + " " + direction);
+            int mask = Board.findMoveMask(moved.cells, size);
+            for (Direction next : DIRECTIONS) {
+               assertEquals((mask >>> next.ordinal() & 1) != 0,
+                     moved.canMove(next), size + "x" + size + " " +
+                     direction + " then " + next);
+            }
+         }
+      }
+   }
+
+   /*
+    * Name: checkGame
+    * Purpose: play random moves, rotations, undos and redos, checking the
+    *    board's hash against one worked out from its tiles after each
+    * Parameters: size (int) - width of the board;
+    *    seed (long) - seed of the game;
+    *    steps (int) - operations to play
+    * Return: void
+    */
+   private static void checkGame(int size, long seed, int steps) {
+      Random choices = new Random(seed);
+      Board board = BoardDifferentialTest.makeBoard(
+            BoardDifferentialTest.randomGrid(size, choices), 0,
+            new Random(~seed));
+      for (int step = 0; step < steps; step++) {
+         int choice = choices.nextInt(10);
+         if (choice < 6) {
+            if (board.move(DIRECTIONS[choices.nextInt(4)])) {
+               board.addRandomTile();
+            }
+         }
+         else if (choice == 6) {
+            board.rotate(choices.nextBoolean());
+         }
+         else if (choice < 9) {
+            board.undo();
+         }
+         else {
+            board.redo();
+         }
+         assertEquals(Board.zobristHash(board.snapshot().cells),
+               board.zobristHash(),
+               size + "x" + size + " seed " + seed + " step " + step);
+      }
+   }
+}
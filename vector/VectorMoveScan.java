@@ -0,0 +1,101 @@
+/**
+ * File: VectorMoveScan.java
+ * Finds which directions a board can move in using the incubating Vector
+ * API, comparing a whole vector of tiles against their neighbours at once
+ * instead of one tile at a time. Board only uses this class on wide
+ * boards and only if it loads, which needs the incubator module both to
+ * compile and to run it. It lives in its own directory so that a plain
+ * javac *.java of the game leaves it out; to use it, from the top of
+ * the repo:
+ *    javac --add-modules jdk.incubator.vector -d out *.java vector/*.java
+ *    java --add-modules jdk.incubator.vector -cp out Gui2048
+ * Without it Board falls back to its scalar scan.
+ *
+ **/
+
+import jdk.incubator.vector.*;
+
+/*
+ * Name: VectorMoveScan
+ * Purpose: To compute a Board's legal-move mask with SIMD comparisons
+ */
+public class VectorMoveScan {
+   private static final VectorSpecies<Byte> SPECIES =
+      ByteVector.SPECIES_PREFERRED;
+
+   private static final int LEFT = 1 << Direction.LEFT.ordinal();
+   private static final int RIGHT = 1 << Direction.RIGHT.ordinal();
+   private static final int UP = 1 << Direction.UP.ordinal();
+   private static final int DOWN = 1 << Direction.DOWN.ordinal();
+   private static final int ALL = LEFT | RIGHT | UP | DOWN;
+
+   /*
+    * Name: scan
+    * Purpose: compute which directions the board can move in; a tile
+    *    that is nonzero and has an empty or equal neighbour on one side
+    *    can move towards that side
+    * Parameters: cells (byte[]) - tile exponents in row-major order;
+    *    n (int) - width of the board
+    * Return: int (bit i set if the board can move in Direction.values()[i])
+    */
+   public static int scan(byte[] cells, int n) {
+      int mask = 0;
+      for (int row = 0; row < n && mask != ALL; row++) {
+         int base = row * n;
+         // each row against itself shifted one tile: LEFT and RIGHT
+         if ((mask & (LEFT | RIGHT)) != (LEFT | RIGHT)) {
+            mask |= scanPairs(cells, base, base + 1, n - 1, RIGHT, LEFT);
+         }
+         // each row against the row below it: UP and DOWN
+         if (row + 1 < n && (mask & (UP | DOWN)) != (UP | DOWN)) {
+            mask |= scanPairs(cells, base, base + n, n, DOWN, UP);
+         }
+      }
+      return mask;
+   }
+
+   /*
+    * Name: scanPairs
+    * Purpose: compare tile a[i] = cells[first + i] with its neighbour
+    *    b[i] = cells[second + i] for i below count, stopping as soon as
+    *    both directions have been found
+    * Parameters: cells (byte[]) - tile exponents;
+    *    first (int), second (int) - where the two runs of tiles start;
+    *    count (int) - how many pairs to compare;
+    *    towardsB (int) - bit set if some a can move onto its b;
+    *    towardsA (int) - bit set if some b can move onto its a
+    * Return: int (towardsB and/or towardsA)
+    */
+   private static int scanPairs(byte[] cells, int first, int second,
+         int count, int towardsB, int towardsA) {
+      int mask = 0;
+      int both = towardsB | towardsA;
+      int i = 0;
+      for (int bound = SPECIES.loopBound(count); i < bound && mask != both;
+            i += SPECIES.length()) {
+         ByteVector a = ByteVector.fromArray(SPECIES, cells, first + i);
+         ByteVector b = ByteVector.fromArray(SPECIES, cells, second + i);
+         VectorMask<Byte> aFull = a.compare(VectorOperators.NE, 0);
+         VectorMask<Byte> bFull = b.compare(VectorOperators.NE, 0);
+         VectorMask<Byte> equal = a.compare(VectorOperators.EQ, b);
+         if (aFull.and(bFull.not().or(equal)).anyTrue()) {
+            mask |= towardsB;
+         }
+         if (bFull.and(aFull.not().or(equal)).anyTrue()) {
+            mask |= towardsA;
+         }
+      }
+      // scalar tail for the pairs that don't fill a whole vector
+      for (; i < count && mask != both; i++) {
+         byte a = cells[first + i];
+         byte b = cells[second + i];
+         if (a != 0 && (b == 0 || a == b)) {
+            mask |= towardsB;
+         }
+         if (b != 0 && (a == 0 || a == b)) {
+            mask |= towardsA;
+         }
+      }
+      return mask;
+   }
+}